@@ -1,5 +1,6 @@
 package com.zxese.blocksubstitutor;
 
+import com.zxese.blocksubstitutor.MappingListWidget.MappingEntry;
 import com.zxese.blocksubstitutor.config.BlockSubConfig;
 import com.zxese.blocksubstitutor.config.ConfigManager;
 
@@ -9,24 +10,48 @@ import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.TextFieldWidget;
-import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.text.Text;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Custom screen that provides a large multi-line editor for block mappings.
+ * Custom screen for editing block mappings, one row per mapping.
  *
- * Lines are in the form:
- *   source = replacement
- * Bare ids default to the minecraft: namespace.
+ * Rows live in a scrolling list that renders only what is visible, the
+ * search box filters by source ID prefix through a sorted index, and
+ * each row is validated against the block registry in the background.
+ * Save applies only the added, edited and removed rows to the mapping
+ * table, and skips writing when nothing changed. Rows that share a
+ * source are flagged as duplicates instead, and nothing is saved until
+ * they are fixed.
  */
 public class BlockMappingsEditorScreen extends Screen {
 
+    private static final int PADDING = 10;
+    private static final int BUTTON_HEIGHT = 20;
+    private static final int BUTTON_WIDTH = 100;
+
     private final Screen parent;
     private final BlockSubConfig config;
 
-    private TextFieldWidget textField;
+    /** Every row in table order; survives re-init (window resize). */
+    private final List<MappingEntry> rows = new ArrayList<>();
+
+    /** Source IDs of loaded rows the user removed. */
+    private final List<String> removedSources = new ArrayList<>();
+
+    private final MappingSearchIndex<MappingEntry> searchIndex = new MappingSearchIndex<>(MappingEntry::getSource);
+
+    private MappingListWidget list;
+    private TextFieldWidget searchField;
+
+    /** Shown next to the buttons after a save was refused; null = none. */
+    private String notice;
 
     public BlockMappingsEditorScreen(Screen parent, BlockSubConfig config) {
         super(Text.literal("Block Substitutor Mappings"));
@@ -38,46 +63,85 @@ public class BlockMappingsEditorScreen extends Screen {
     protected void init() {
         super.init();
 
-        int padding = 10;
-        int buttonHeight = 20;
-        int buttonWidth = 100;
-
-        // Create a large text field taking most of the screen.
-        int textX = padding;
-        int textY = padding + 20; // leave room for title
-        int textWidth = this.width - padding * 2;
-        int textHeight = this.height - textY - padding - buttonHeight - 10;
-
-        textField = new TextFieldWidget(this.textRenderer, textX, textY, textWidth, textHeight, Text.literal("Mappings"));
-        textField.setText(serializeMappingsToText(config));
-        textField.setMaxLength(Integer.MAX_VALUE); // effectively unlimited
-
-        this.addDrawableChild(textField);
-
-        // Save button
-        int saveX = this.width / 2 - buttonWidth - 5;
-        int saveY = this.height - padding - buttonHeight;
-
-        this.addDrawableChild(ButtonWidget.builder(Text.literal("Save"), button -> {
-            HashMap<String, String> newMappings = parseMappingsFromText(textField.getText());
-            config.setBlockMappings(newMappings);
-            ConfigManager.save(FabricLoader.getInstance().getConfigDir());
-            MinecraftClient.getInstance().setScreen(parent);
-        }).dimensions(saveX, saveY, buttonWidth, buttonHeight).build());
+        if (rows.isEmpty() && removedSources.isEmpty()) {
+            config.getBlockMappings().forEach((source, replacement) ->
+                    rows.add(createRow(source, replacement, true))
+            );
+            searchIndex.setRows(rows);
+        }
 
-        // Cancel button
-        int cancelX = this.width / 2 + 5;
+        // Search box and Add button
+        int searchY = PADDING + 14;
+        int addWidth = 60;
+        String query = searchField == null ? "" : searchField.getText();
+
+        searchField = new TextFieldWidget(
+                this.textRenderer,
+                PADDING,
+                searchY,
+                this.width - PADDING * 3 - addWidth,
+                BUTTON_HEIGHT,
+                Text.literal("Search")
+        );
+        searchField.setMaxLength(256);
+        searchField.setText(query);
+        searchField.setPlaceholder(Text.literal("Search source ID..."));
+        searchField.setChangedListener(this::applyFilter);
+        this.addDrawableChild(searchField);
+
+        this.addDrawableChild(ButtonWidget.builder(Text.literal("Add"), button -> addRow())
+                .dimensions(this.width - PADDING - addWidth, searchY, addWidth, BUTTON_HEIGHT)
+                .build());
+
+        // Mapping rows
+        int listTop = searchY + BUTTON_HEIGHT + 6;
+        int listBottom = this.height - PADDING - BUTTON_HEIGHT - 6;
+        list = new MappingListWidget(this.client, this.width, this.height, listTop, listBottom);
+        this.addDrawableChild(list);
+        applyFilter(query);
+
+        // Save / Cancel
+        int buttonY = this.height - PADDING - BUTTON_HEIGHT;
+
+        this.addDrawableChild(ButtonWidget.builder(Text.literal("Save"), button -> save())
+                .dimensions(this.width / 2 - BUTTON_WIDTH - 5, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT)
+                .build());
+
+        this.addDrawableChild(ButtonWidget.builder(Text.literal("Cancel"), button -> close())
+                .dimensions(this.width / 2 + 5, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT)
+                .build());
+    }
 
-        this.addDrawableChild(ButtonWidget.builder(Text.literal("Cancel"), button -> {
-            MinecraftClient.getInstance().setScreen(parent);
-        }).dimensions(cancelX, saveY, buttonWidth, buttonHeight).build());
+    @Override
+    public void tick() {
+        searchField.tick();
+        MappingEntry focused = list.getFocused();
+        if (focused != null) {
+            focused.tick();
+        }
     }
 
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
         this.renderBackground(context);
-        context.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, 10, 0xFFFFFF);
         super.render(context, mouseX, mouseY, delta);
+        context.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, PADDING, 0xFFFFFF);
+        context.drawTextWithShadow(
+                this.textRenderer,
+                list.children().size() + " / " + rows.size(),
+                PADDING,
+                this.height - PADDING - BUTTON_HEIGHT + 6,
+                0xA0A0A0
+        );
+        if (notice != null) {
+            context.drawTextWithShadow(
+                    this.textRenderer,
+                    notice,
+                    this.width - PADDING - this.textRenderer.getWidth(notice),
+                    this.height - PADDING - BUTTON_HEIGHT + 6,
+                    0xFF5555
+            );
+        }
     }
 
     @Override
@@ -86,80 +150,130 @@ public class BlockMappingsEditorScreen extends Screen {
     }
 
     // ---------------------------------------------------------
-    // Text <-> Map helpers (duplicated from BlockSubstitutorConfigScreen for now)
+    // Rows
     // ---------------------------------------------------------
 
-    private static String serializeMappingsToText(BlockSubConfig config) {
-        StringBuilder builder = new StringBuilder();
-
-        config.getBlockMappings().forEach((source, replacement) -> {
-            if (builder.length() > 0) {
-                builder.append('\n');
-            }
-            builder.append(source)
-                    .append(" = ")
-                    .append(replacement);
-        });
+    private MappingEntry createRow(String source, String replacement, boolean loaded) {
+        return new MappingEntry(
+                this.textRenderer,
+                source,
+                replacement,
+                loaded,
+                row -> searchIndex.invalidate(),
+                this::removeRow
+        );
+    }
 
-        return builder.toString();
+    /**
+     * Shows all rows in table order for an empty query, otherwise the
+     * rows whose source ID starts with it.
+     */
+    private void applyFilter(String query) {
+        list.setRows(query.isBlank() ? rows : searchIndex.search(query));
     }
 
-    private static HashMap<String, String> parseMappingsFromText(String text) {
-        HashMap<String, String> result = new HashMap<>();
+    private void addRow() {
+        MappingEntry row = createRow("", "", false);
+        rows.add(0, row);
+        searchIndex.invalidate();
 
-        if (text == null || text.isEmpty()) {
-            return result;
-        }
+        searchField.setText("");
+        applyFilter("");
 
-        String[] lines = text.split("\\r?\\n");
+        setFocused(list);
+        list.setFocused(row);
+        row.focusSource();
+    }
 
-        for (String rawLine : lines) {
-            String line = rawLine.trim();
+    private void removeRow(MappingEntry row) {
+        rows.remove(row);
+        list.removeRow(row);
+        searchIndex.invalidate();
 
-            if (line.isEmpty()) {
-                continue;
-            }
+        if (row.getOriginalSource() != null) {
+            removedSources.add(row.getOriginalSource());
+        }
+    }
 
-            if (line.startsWith("#") || line.startsWith("//")) {
-                continue;
-            }
+    // ---------------------------------------------------------
+    // Save
+    // ---------------------------------------------------------
 
-            String[] parts;
+    /**
+     * Applies the removed and edited rows to the loaded mapping table and
+     * saves it; untouched rows are never re-read. Originals are removed
+     * before new values are put, so swapping two sources keeps both.
+     */
+    private void save() {
+        if (flagDuplicates()) {
+            return;
+        }
 
-            if (line.contains("=")) {
-                parts = line.split("=", 2);
-            } else if (line.contains("->")) {
-                parts = line.split("->", 2);
-            } else {
-                continue;
-            }
+        Map<String, String> mappings = new LinkedHashMap<>(config.getBlockMappings());
+        List<MappingEntry> changed = new ArrayList<>();
 
-            String rawSource = parts[0].trim();
-            String rawReplacement = parts[1].trim();
+        for (String source : removedSources) {
+            mappings.remove(source);
+        }
 
-            if (rawSource.isEmpty() || rawReplacement.isEmpty()) {
-                continue;
+        for (MappingEntry row : rows) {
+            if (row.isChanged()) {
+                if (row.getOriginalSource() != null) {
+                    mappings.remove(row.getOriginalSource());
+                }
+                changed.add(row);
             }
+        }
 
-            String source = normalizeBlockId(rawSource);
-            String replacement = normalizeBlockId(rawReplacement);
+        for (MappingEntry row : changed) {
+            if (!row.getSource().isEmpty() && !row.getTarget().isEmpty()) {
+                mappings.put(row.getSource(), row.getTarget());
+            }
+        }
 
-            result.put(source, replacement);
+        if (!changed.isEmpty() || !removedSources.isEmpty()) {
+            config.setBlockMappings(mappings);
+            ConfigManager.save(FabricLoader.getInstance().getConfigDir(), config);
         }
 
-        return result;
+        close();
     }
 
-    private static String normalizeBlockId(String rawId) {
-        String id = rawId.trim();
-        if (id.isEmpty()) {
-            return id;
+    /**
+     * Flags every row whose source is also used by another row, and shows
+     * only those rows. Saving them would silently keep just one of each.
+     * Returns true if any duplicate was found.
+     */
+    private boolean flagDuplicates() {
+        Map<String, List<MappingEntry>> bySource = new HashMap<>();
+        for (MappingEntry row : rows) {
+            if (!row.getSource().isEmpty()) {
+                bySource.computeIfAbsent(row.getSource(), source -> new ArrayList<>(1)).add(row);
+            }
+        }
+
+        List<MappingEntry> duplicates = new ArrayList<>();
+        int sources = 0;
+        for (List<MappingEntry> sameSource : bySource.values()) {
+            if (sameSource.size() > 1) {
+                duplicates.addAll(sameSource);
+                sources++;
+            }
+        }
+
+        if (duplicates.isEmpty()) {
+            notice = null;
+            return false;
         }
 
-        if (id.contains(":")) {
-            return id;
+        for (MappingEntry row : duplicates) {
+            row.markDuplicate();
         }
+        duplicates.sort(Comparator.comparing(MappingEntry::getSource));
 
-        return "minecraft:" + id;
+        searchField.setText("");
+        list.setRows(duplicates);
+        notice = sources + " source" + (sources == 1 ? " is" : "s are") + " mapped more than once; fix to save";
+        return true;
     }
 }
@@ -26,7 +26,7 @@ public final class BlockSubstitutorConfigScreen {
      * Creates a new Cloth Config screen for editing the config.
      *
      * @param parent The parent screen (Mod Menu passes this in)
-     * @param config The config instance to edit
+     * @param config The config instance to edit (a copy from ConfigManager.getEditableCopy())
      * @return A new Screen instance
      */
     public static Screen create(Screen parent, BlockSubConfig config) {
@@ -59,7 +59,8 @@ public final class BlockSubstitutorConfigScreen {
         // ---------------------------------------------------------
         builder.setSavingRunnable(() -> {
             ConfigManager.save(
-                    FabricLoader.getInstance().getConfigDir()
+                    FabricLoader.getInstance().getConfigDir(),
+                    config
             );
         });
 
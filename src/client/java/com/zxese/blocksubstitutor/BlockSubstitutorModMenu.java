@@ -17,6 +17,6 @@ public class BlockSubstitutorModMenu implements ModMenuApi {
     @Override
     public ConfigScreenFactory<?> getModConfigScreenFactory() {
         return (Screen parent) ->
-                new BlockMappingsEditorScreen(parent, ConfigManager.getConfig());
+                new BlockMappingsEditorScreen(parent, ConfigManager.getEditableCopy());
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.zxese.blocksubstitutor;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.Element;
+import net.minecraft.client.gui.Selectable;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.client.gui.widget.ClickableWidget;
+import net.minecraft.client.gui.widget.ElementListWidget;
+import net.minecraft.client.gui.widget.TextFieldWidget;
+import net.minecraft.text.Text;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * MappingListWidget
+ *
+ * Scrolling list with one editable row per block mapping. Only the rows
+ * inside the visible area are rendered, so the cost per frame does not
+ * grow with the size of the mapping table.
+ */
+public class MappingListWidget extends ElementListWidget<MappingListWidget.MappingEntry> {
+
+    private static final int ROW_HEIGHT = 22;
+    private static final int MAX_ROW_WIDTH = 640;
+
+    public MappingListWidget(MinecraftClient client, int width, int height, int top, int bottom) {
+        super(client, width, height, top, bottom, ROW_HEIGHT);
+    }
+
+    /**
+     * Shows exactly these rows, in this order, and scrolls to the top.
+     */
+    public void setRows(Collection<MappingEntry> rows) {
+        replaceEntries(rows);
+        setScrollAmount(0);
+    }
+
+    public void removeRow(MappingEntry row) {
+        removeEntry(row);
+    }
+
+    @Override
+    public int getRowWidth() {
+        return Math.min(MAX_ROW_WIDTH, this.width - 40);
+    }
+
+    @Override
+    protected int getScrollbarPositionX() {
+        return this.width / 2 + getRowWidth() / 2 + 6;
+    }
+
+    // ---------------------------------------------------------
+    // Rows
+    // ---------------------------------------------------------
+
+    /**
+     * One mapping: editable source and replacement fields, the latest
+     * validation result and a remove button. Remembers the values it was
+     * loaded with, so saving only touches edited rows. A row is first
+     * validated when it is rendered or edited, so opening a large table
+     * only validates the rows that are scrolled into view.
+     */
+    public static final class MappingEntry extends ElementListWidget.Entry<MappingEntry> {
+
+        private static final int ARROW_WIDTH = 20;
+        private static final int STATUS_WIDTH = 50;
+        private static final int BUTTON_WIDTH = 20;
+
+        private final TextRenderer textRenderer;
+        private final TextFieldWidget sourceField;
+        private final TextFieldWidget targetField;
+        private final ButtonWidget removeButton;
+        private final List<ClickableWidget> widgets;
+
+        /** Values on load; null for rows added in the editor. */
+        private final String originalSource;
+        private final String originalTarget;
+
+        private final AtomicInteger editVersion = new AtomicInteger();
+        private volatile MappingValidator.Status status = MappingValidator.Status.PENDING;
+
+        /** False until the row is first rendered or edited. Render thread only. */
+        private boolean validated;
+
+        public MappingEntry(
+                TextRenderer textRenderer,
+                String source,
+                String target,
+                boolean loaded,
+                Consumer<MappingEntry> onSourceEdited,
+                Consumer<MappingEntry> onRemove
+        ) {
+            this.textRenderer = textRenderer;
+            this.originalSource = loaded ? source : null;
+            this.originalTarget = loaded ? target : null;
+
+            this.sourceField = new TextFieldWidget(textRenderer, 0, 0, 100, 18, Text.literal("Source"));
+            this.sourceField.setMaxLength(256);
+            this.sourceField.setText(source);
+
+            this.targetField = new TextFieldWidget(textRenderer, 0, 0, 100, 18, Text.literal("Replacement"));
+            this.targetField.setMaxLength(256);
+            this.targetField.setText(target);
+
+            this.removeButton = ButtonWidget.builder(Text.literal("x"), button -> onRemove.accept(this))
+                    .dimensions(0, 0, BUTTON_WIDTH, 18)
+                    .build();
+
+            this.widgets = List.of(sourceField, targetField, removeButton);
+
+            // Listeners after setText, so loading a row is not an edit
+            this.sourceField.setChangedListener(text -> {
+                onSourceEdited.accept(this);
+                validate();
+            });
+            this.targetField.setChangedListener(text -> validate());
+        }
+
+        /**
+         * Queues this row for background validation. Results of older
+         * edits that finish late are ignored.
+         */
+        private void validate() {
+            int version = editVersion.incrementAndGet();
+            validated = true;
+            status = MappingValidator.Status.PENDING;
+
+            MappingValidator.submit(getSource(), getTarget(), result -> {
+                if (editVersion.get() == version) {
+                    status = result;
+                }
+            });
+        }
+
+        /**
+         * Flags the row as sharing its source with another row. Replaces
+         * any pending result; the next edit validates the row again.
+         */
+        public void markDuplicate() {
+            editVersion.incrementAndGet();
+            validated = true;
+            status = MappingValidator.Status.DUPLICATE;
+        }
+
+        public String getSource() {
+            return sourceField.getText().trim();
+        }
+
+        public String getTarget() {
+            return targetField.getText().trim();
+        }
+
+        public String getOriginalSource() {
+            return originalSource;
+        }
+
+        /** True if the row was added, or edited since it was loaded. */
+        public boolean isChanged() {
+            if (originalSource == null) {
+                return !getSource().isEmpty() || !getTarget().isEmpty();
+            }
+            return !getSource().equals(originalSource) || !getTarget().equals(originalTarget);
+        }
+
+        public void focusSource() {
+            setFocused(sourceField);
+            sourceField.setFocused(true);
+        }
+
+        public void tick() {
+            sourceField.tick();
+            targetField.tick();
+        }
+
+        @Override
+        public void render(
+                DrawContext context,
+                int index,
+                int y,
+                int x,
+                int entryWidth,
+                int entryHeight,
+                int mouseX,
+                int mouseY,
+                boolean hovered,
+                float tickDelta
+        ) {
+            int fieldWidth = (entryWidth - ARROW_WIDTH - STATUS_WIDTH - BUTTON_WIDTH - 8) / 2;
+
+            sourceField.setX(x);
+            sourceField.setY(y);
+            sourceField.setWidth(fieldWidth);
+            sourceField.render(context, mouseX, mouseY, tickDelta);
+
+            context.drawCenteredTextWithShadow(textRenderer, "->", x + fieldWidth + ARROW_WIDTH / 2, y + 5, 0xA0A0A0);
+
+            targetField.setX(x + fieldWidth + ARROW_WIDTH);
+            targetField.setY(y);
+            targetField.setWidth(fieldWidth);
+            targetField.render(context, mouseX, mouseY, tickDelta);
+
+            if (!validated) {
+                validate();
+            }
+
+            MappingValidator.Status current = status;
+            int statusX = x + 2 * fieldWidth + ARROW_WIDTH + 4;
+            context.drawTextWithShadow(textRenderer, current.getLabel(), statusX, y + 5, current.getColor());
+
+            removeButton.setX(x + entryWidth - BUTTON_WIDTH);
+            removeButton.setY(y);
+            removeButton.render(context, mouseX, mouseY, tickDelta);
+        }
+
+        @Override
+        public List<? extends Element> children() {
+            return widgets;
+        }
+
+        @Override
+        public List<? extends Selectable> selectableChildren() {
+            return widgets;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.zxese.blocksubstitutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * MappingSearchIndex
+ *
+ * Prefix index over the source IDs of the mappings editor. Keys are kept
+ * sorted, so every prefix matches one contiguous range found by binary
+ * search. Each row is indexed by its full ID and by the part after the
+ * namespace, so "resin" finds "minecraft:resin_bricks".
+ *
+ * Searching is incremental: when a query extends the previous one, only
+ * the previous range is searched. The index is rebuilt lazily after rows
+ * change.
+ */
+public final class MappingSearchIndex<T> {
+
+    private final Comparator<Key<T>> order = Comparator.comparing(key -> key.text);
+    private final Function<T, String> sourceOf;
+
+    private List<T> rows = new ArrayList<>();
+    private Key<T>[] keys;
+    private boolean dirty = true;
+
+    private String lastQuery = "";
+    private int lastFrom;
+    private int lastTo;
+
+    /**
+     * Creates an index whose rows are keyed by the source ID the function
+     * returns.
+     */
+    public MappingSearchIndex(Function<T, String> sourceOf) {
+        this.sourceOf = sourceOf;
+    }
+
+    /**
+     * Replaces the indexed rows. The index is rebuilt on the next search.
+     */
+    public void setRows(List<T> rows) {
+        this.rows = rows;
+        this.dirty = true;
+    }
+
+    /** Marks the index stale after a source ID was edited. */
+    public void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Returns the rows whose source ID, or its path without namespace,
+     * starts with the query (case-insensitive), in key order. Each row is
+     * listed once.
+     */
+    public List<T> search(String query) {
+        String prefix = query.trim().toLowerCase(Locale.ROOT);
+
+        if (dirty) {
+            rebuild();
+        }
+
+        int from = 0;
+        int to = keys.length;
+
+        if (!lastQuery.isEmpty() && prefix.startsWith(lastQuery)) {
+            from = lastFrom;
+            to = lastTo;
+        }
+
+        from = lowerBound(prefix, from, to);
+        to = upperBound(prefix, from, to);
+
+        lastQuery = prefix;
+        lastFrom = from;
+        lastTo = to;
+
+        List<T> result = new ArrayList<>(to - from);
+        Map<T, Boolean> seen = new IdentityHashMap<>();
+
+        for (int i = from; i < to; i++) {
+            if (seen.put(keys[i].row, Boolean.TRUE) == null) {
+                result.add(keys[i].row);
+            }
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rebuild() {
+        List<Key<T>> built = new ArrayList<>(rows.size() * 2);
+
+        for (T row : rows) {
+            String id = sourceOf.apply(row).trim().toLowerCase(Locale.ROOT);
+            built.add(new Key<>(id, row));
+
+            int colon = id.indexOf(':');
+            if (colon >= 0) {
+                built.add(new Key<>(id.substring(colon + 1), row));
+            }
+        }
+
+        keys = built.toArray(new Key[0]);
+        Arrays.sort(keys, order);
+
+        dirty = false;
+        lastQuery = "";
+    }
+
+    /** First index in [from, to) whose key is not below the prefix. */
+    private int lowerBound(String prefix, int from, int to) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (keys[mid].text.compareTo(prefix) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /** First index in [from, to) whose key does not start with the prefix. */
+    private int upperBound(String prefix, int from, int to) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (keys[mid].text.startsWith(prefix)) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * One search key and the row it belongs to.
+     */
+    private static final class Key<T> {
+
+        private final String text;
+        private final T row;
+
+        private Key(String text, T row) {
+            this.text = text;
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.zxese.blocksubstitutor;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import com.zxese.blocksubstitutor.config.MappingRules;
+
+import net.minecraft.command.argument.BlockArgumentParser;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * MappingValidator
+ *
+ * Checks edited mapping rows against the block registry on a background
+ * thread, so typing in the mappings editor never waits on validation.
+ * Each row submits its text after an edit and picks the result up on
+ * its next frame (see MappingListWidget.MappingEntry).
+ */
+public final class MappingValidator {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BlockSubstitutor-Validate");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MappingValidator() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Result of validating one row.
+     */
+    public enum Status {
+        PENDING("...", 0xA0A0A0),
+        OK("ok", 0x55FF55),
+        /** Source is not a block in this version; expected for newer blocks. */
+        NEW_BLOCK("new", 0xFFFF55),
+        PATTERN("pattern", 0xA0A0A0),
+        TAG("tag", 0xA0A0A0),
+        EMPTY("", 0xA0A0A0),
+        BAD_SOURCE("bad id", 0xFF5555),
+        UNKNOWN_TARGET("no block", 0xFF5555),
+        /** Another row has the same source; set by the editor on save, not by validate(). */
+        DUPLICATE("duplicate", 0xFF5555);
+
+        private final String label;
+        private final int color;
+
+        Status(String label, int color) {
+            this.label = label;
+            this.color = color;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getColor() {
+            return color;
+        }
+    }
+
+    /**
+     * Validates a row off the render thread and hands the result to the
+     * callback on the validation thread.
+     */
+    public static void submit(String source, String target, Consumer<Status> callback) {
+        EXECUTOR.execute(() -> callback.accept(validate(source, target)));
+    }
+
+    /**
+     * Validates a source/target pair. Registry reads are safe here: the
+     * block registry is frozen once the game has started.
+     */
+    public static Status validate(String source, String target) {
+        String from = source.trim();
+        String to = target.trim();
+
+        if (from.isEmpty() && to.isEmpty()) {
+            return Status.EMPTY;
+        }
+
+        Identifier targetId = Identifier.tryParse(MappingRules.blockIdOf(to));
+        if (targetId == null || !Registries.BLOCK.containsId(targetId)) {
+            return to.contains("$") ? Status.PATTERN : Status.UNKNOWN_TARGET;
+        }
+        if (to.contains("[") && !isBlockState(to)) {
+            return Status.UNKNOWN_TARGET;
+        }
+
+        if (from.startsWith("#")) {
+            return Identifier.tryParse(from.substring(1)) == null ? Status.BAD_SOURCE : Status.TAG;
+        }
+        if (MappingRules.isStateKey(from)) {
+            Identifier sourceId = Identifier.tryParse(MappingRules.blockIdOf(from));
+            if (sourceId == null) {
+                return Status.BAD_SOURCE;
+            }
+            if (!Registries.BLOCK.containsId(sourceId)) {
+                return Status.NEW_BLOCK;
+            }
+            return isBlockState(from) ? Status.OK : Status.BAD_SOURCE;
+        }
+        if (from.contains("*") || from.contains("(") || from.contains("[") || from.contains("\\")) {
+            return Status.PATTERN;
+        }
+
+        Identifier sourceId = Identifier.tryParse(from);
+        if (sourceId == null) {
+            return Status.BAD_SOURCE;
+        }
+        return Registries.BLOCK.containsId(sourceId) ? Status.OK : Status.NEW_BLOCK;
+    }
+
+    /**
+     * True if the block state string names properties and values the
+     * block actually has.
+     */
+    private static boolean isBlockState(String blockState) {
+        try {
+            BlockArgumentParser.block(Registries.BLOCK.getReadOnlyWrapper(), blockState, false);
+            return true;
+        } catch (CommandSyntaxException e) {
+            return false;
+        }
+    }
+}
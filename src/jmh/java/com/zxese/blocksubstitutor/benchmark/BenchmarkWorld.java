@@ -0,0 +1,263 @@
+package com.zxese.blocksubstitutor.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.ChestBlock;
+
+import net.minecraft.registry.Registries;
+
+import net.minecraft.state.property.Property;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Direction;
+
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * BenchmarkWorld
+ *
+ * Synthetic chunk data and mapping tables shared by the benchmarks.
+ *
+ * Chunks have the overworld's 24 sections: the lower half solid
+ * (stone with some dirt), the upper half air. Mapped blocks are placed
+ * at random positions in the solid half with a fixed seed, so every run
+ * measures the same data.
+ */
+public final class BenchmarkWorld {
+
+    static final int SECTIONS_PER_CHUNK = 24;
+    static final int SOLID_SECTIONS = 12;
+
+    /** Mapped blocks per chunk for the FEW hit density. */
+    static final int FEW_HITS = 16;
+
+    /** Share of solid blocks that are mapped for the MANY hit density. */
+    static final double MANY_HIT_RATIO = 0.25;
+
+    private static final Direction[] HORIZONTAL = {
+            Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST
+    };
+
+    private static final String DEFAULTS_RESOURCE = "/blocksubstitutor-defaults.json";
+
+    private static boolean bootstrapped;
+
+    private BenchmarkWorld() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Initializes the vanilla registries so block states have raw IDs.
+     */
+    static synchronized void bootstrap() {
+        if (!bootstrapped) {
+            SharedConstants.createGameVersion();
+            Bootstrap.initialize();
+            bootstrapped = true;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Mapping Tables
+    // ---------------------------------------------------------
+
+    /**
+     * Builds a mapping table by name: "defaults" is the bundled default
+     * config, a number is a synthetic table of that many entries.
+     *
+     * Every table maps granite -> stone and chest -> barrel, the blocks
+     * placed as hits; no other entry overrides them. Synthetic tables are
+     * filled with registered blocks first. Past the number of registered
+     * blocks the remaining entries are block state keys of registered
+     * blocks ("minecraft:oak_stairs[facing=east,half=top,...]"), so every
+     * entry compiles into the table.
+     */
+    static Map<String, String> mappingTable(String table) {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        mappings.put("minecraft:granite", "minecraft:stone");
+        mappings.put("minecraft:chest", "minecraft:barrel");
+
+        if (table.equals("defaults")) {
+            loadDefaultMappings().forEach(mappings::putIfAbsent);
+            return mappings;
+        }
+
+        int count = Integer.parseInt(table);
+        List<Identifier> ids = new ArrayList<>(Registries.BLOCK.getIds());
+        ids.sort(null);
+
+        for (Identifier id : ids) {
+            if (mappings.size() >= count) {
+                return mappings;
+            }
+            if (!isReserved(id)) {
+                mappings.putIfAbsent(id.toString(), "minecraft:stone");
+            }
+        }
+
+        for (Identifier id : ids) {
+            if (isReserved(id)) {
+                continue;
+            }
+            for (BlockState state : Registries.BLOCK.get(id).getStateManager().getStates()) {
+                if (mappings.size() >= count) {
+                    return mappings;
+                }
+                if (!state.getProperties().isEmpty()) {
+                    mappings.putIfAbsent(stateKey(id, state), "minecraft:stone");
+                }
+            }
+        }
+
+        throw new IllegalArgumentException(
+                "Table of " + count + " entries is larger than the registered blocks and states (" + mappings.size() + ")"
+        );
+    }
+
+    /** Blocks that make up the synthetic terrain or the hits. */
+    private static boolean isReserved(Identifier id) {
+        String path = id.getPath();
+        return path.equals("air")
+                || path.equals("stone")
+                || path.equals("dirt")
+                || path.equals("barrel")
+                || path.equals("granite")
+                || path.equals("chest");
+    }
+
+    /** "minecraft:oak_stairs[facing=east,half=top,shape=straight,waterlogged=false]" */
+    private static String stateKey(Identifier id, BlockState state) {
+        StringBuilder key = new StringBuilder(id.toString()).append('[');
+
+        for (Property<?> property : state.getProperties()) {
+            if (key.charAt(key.length() - 1) != '[') {
+                key.append(',');
+            }
+            key.append(property.getName()).append('=').append(valueName(state, property));
+        }
+
+        return key.append(']').toString();
+    }
+
+    private static <T extends Comparable<T>> String valueName(BlockState state, Property<T> property) {
+        return property.name(state.get(property));
+    }
+
+    private static Map<String, String> loadDefaultMappings() {
+        Map<String, String> mappings = new LinkedHashMap<>();
+
+        try (InputStream in = BenchmarkWorld.class.getResourceAsStream(DEFAULTS_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + DEFAULTS_RESOURCE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                JsonObject root = new Gson().fromJson(reader, JsonObject.class);
+                for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject("blockMappings").entrySet()) {
+                    mappings.put(entry.getKey(), entry.getValue().getAsString());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read " + DEFAULTS_RESOURCE, e);
+        }
+
+        return mappings;
+    }
+
+    // ---------------------------------------------------------
+    // Chunks
+    // ---------------------------------------------------------
+
+    /**
+     * Builds a chunk's sections with the given number of mapped blocks.
+     * Block-entity-heavy chunks use chests (random facing) as hits.
+     */
+    static ChunkSection[] chunk(HitDensity hits, boolean blockEntityHeavy, long seed) {
+        Random random = new Random(seed);
+        ChunkSection[] sections = new ChunkSection[SECTIONS_PER_CHUNK];
+
+        for (int sectionIndex = 0; sectionIndex < SECTIONS_PER_CHUNK; sectionIndex++) {
+            sections[sectionIndex] = newSection(sectionIndex);
+
+            if (sectionIndex < SOLID_SECTIONS) {
+                fillTerrain(sections[sectionIndex], random);
+            }
+        }
+
+        int solidBlocks = SOLID_SECTIONS * 4096;
+        int hitCount = switch (hits) {
+            case NONE -> 0;
+            case FEW -> FEW_HITS;
+            case MANY -> (int) (solidBlocks * MANY_HIT_RATIO);
+        };
+
+        for (int i = 0; i < hitCount; i++) {
+            int index = random.nextInt(solidBlocks);
+            BlockState hit = blockEntityHeavy ? randomChest(random) : Blocks.GRANITE.getDefaultState();
+
+            sections[index >> 12].setBlockState(index & 15, (index >> 8) & 15, (index >> 4) & 15, hit, false);
+        }
+
+        return sections;
+    }
+
+    /**
+     * A section without a biome container; the benchmarks only read block states.
+     */
+    private static ChunkSection newSection(int sectionIndex) {
+        PalettedContainer<BlockState> blockStates = new PalettedContainer<>(
+                Block.STATE_IDS,
+                Blocks.AIR.getDefaultState(),
+                PalettedContainer.PaletteProvider.BLOCK_STATE
+        );
+        return new ChunkSection(sectionIndex - 4, blockStates, null);
+    }
+
+    private static void fillTerrain(ChunkSection section, Random random) {
+        BlockState stone = Blocks.STONE.getDefaultState();
+        BlockState dirt = Blocks.DIRT.getDefaultState();
+
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    section.setBlockState(x, y, z, random.nextInt(8) == 0 ? dirt : stone, false);
+                }
+            }
+        }
+    }
+
+    private static BlockState randomChest(Random random) {
+        Direction facing = HORIZONTAL[random.nextInt(HORIZONTAL.length)];
+        return Blocks.CHEST.getDefaultState().with(ChestBlock.FACING, facing);
+    }
+
+    /**
+     * Number of mapped blocks in a chunk.
+     */
+    public enum HitDensity {
+        NONE,
+        FEW,
+        MANY
+    }
+}
@@ -0,0 +1,102 @@
+package com.zxese.blocksubstitutor.benchmark;
+
+import com.zxese.blocksubstitutor.engine.ChunkScanner;
+import com.zxese.blocksubstitutor.engine.ChunkWriteBatch;
+import com.zxese.blocksubstitutor.engine.CompiledMappings;
+import com.zxese.blocksubstitutor.engine.SectionScanPool;
+
+import net.minecraft.world.chunk.ChunkSection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChunkScanBenchmark
+ *
+ * Cost of finding the blocks to replace in one chunk (one operation =
+ * one chunk), the server-thread part of a chunk-load substitution.
+ * Run with -prof gc for bytes allocated per chunk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkScanBenchmark {
+
+    @Param({"NONE", "FEW", "MANY"})
+    public BenchmarkWorld.HitDensity hits;
+
+    @Param({"10", "defaults", "5000"})
+    public String mappingTable;
+
+    @Param({"false", "true"})
+    public boolean blockEntityHeavy;
+
+    private ChunkSection[] sections;
+    private CompiledMappings mappings;
+    private ForkJoinPool scanPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkWorld.bootstrap();
+        mappings = CompiledMappings.compile(BenchmarkWorld.mappingTable(mappingTable));
+        sections = BenchmarkWorld.chunk(hits, blockEntityHeavy, 42L);
+        scanPool = SectionScanPool.get(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SectionScanPool.shutdown();
+    }
+
+    /**
+     * Palette pre-check plus per-block scan, as done on chunk load.
+     */
+    @Benchmark
+    public ChunkWriteBatch scanChunk() {
+        ChunkWriteBatch batch = new ChunkWriteBatch();
+        ChunkScanner.scan(sections, mappings, batch);
+        return batch;
+    }
+
+    /**
+     * The same scan split across the section scan pool, one task per
+     * non-empty section (sectionScanParallelism, minimum of 1 section).
+     */
+    @Benchmark
+    public ChunkWriteBatch scanChunkParallel() {
+        ChunkWriteBatch batch = new ChunkWriteBatch();
+        ChunkScanner.scanParallel(sections, mappings, batch, scanPool, 1);
+        return batch;
+    }
+
+    /**
+     * Palette pre-check only; the cost for chunks that need no writes.
+     */
+    @Benchmark
+    public int paletteCheck() {
+        int sectionsToScan = 0;
+        for (ChunkSection section : sections) {
+            if (ChunkScanner.needsScan(section, mappings)) {
+                sectionsToScan++;
+            }
+        }
+        return sectionsToScan;
+    }
+}
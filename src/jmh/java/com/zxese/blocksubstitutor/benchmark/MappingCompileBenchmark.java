@@ -0,0 +1,50 @@
+package com.zxese.blocksubstitutor.benchmark;
+
+import com.zxese.blocksubstitutor.engine.CompiledMappings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MappingCompileBenchmark
+ *
+ * Cost of compiling the config mappings into the state table, including
+ * the property-transfer plans. Paid once per config change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingCompileBenchmark {
+
+    @Param({"10", "defaults", "5000"})
+    public String mappingTable;
+
+    private Map<String, String> mappings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkWorld.bootstrap();
+        mappings = BenchmarkWorld.mappingTable(mappingTable);
+    }
+
+    @Benchmark
+    public CompiledMappings compile() {
+        return CompiledMappings.compile(mappings);
+    }
+}
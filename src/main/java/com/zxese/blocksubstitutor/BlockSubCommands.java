@@ -0,0 +1,206 @@
+package com.zxese.blocksubstitutor;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.engine.MissingPropertyLog;
+import com.zxese.blocksubstitutor.engine.SubstitutionScheduler;
+import com.zxese.blocksubstitutor.engine.WorldConversionJob;
+import com.zxese.blocksubstitutor.metrics.DimensionMetrics;
+import com.zxese.blocksubstitutor.metrics.LatencyHistogram;
+import com.zxese.blocksubstitutor.metrics.SubstitutionMetrics;
+
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.text.Text;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BlockSubCommands
+ *
+ * Registers the /blocksub server command tree:
+ *   /blocksub convert start   - convert every generated chunk in all dimensions
+ *   /blocksub convert stop    - stop the conversion (resumable)
+ *   /blocksub convert status  - show conversion progress
+ *   /blocksub queue           - show scheduler queue depth
+ *   /blocksub missing         - list properties dropped by substitution
+ *   /blocksub stats           - per-dimension substitution metrics
+ *   /blocksub reload          - re-read config/blocksubstitutor.json
+ */
+public final class BlockSubCommands {
+
+    private static final int PERMISSION_LEVEL = 2;
+
+    /** Mappings listed per dimension by /blocksub stats. */
+    private static final int STATS_TOP_MAPPINGS = 5;
+
+    private BlockSubCommands() {
+        // Utility class; no instantiation.
+    }
+
+    public static void register(CommandDispatcher<ServerCommandSource> dispatcher, SubstitutionScheduler scheduler) {
+        dispatcher.register(
+                CommandManager.literal("blocksub")
+                        .requires(source -> source.hasPermissionLevel(PERMISSION_LEVEL))
+                        .then(CommandManager.literal("convert")
+                                .then(CommandManager.literal("start").executes(context -> convertStart(context, scheduler)))
+                                .then(CommandManager.literal("stop").executes(BlockSubCommands::convertStop))
+                                .then(CommandManager.literal("status").executes(BlockSubCommands::convertStatus)))
+                        .then(CommandManager.literal("queue")
+                                .executes(context -> queueStatus(context, scheduler)))
+                        .then(CommandManager.literal("missing")
+                                .executes(BlockSubCommands::missingProperties))
+                        .then(CommandManager.literal("stats")
+                                .executes(BlockSubCommands::stats))
+                        .then(CommandManager.literal("reload")
+                                .executes(BlockSubCommands::reload))
+        );
+    }
+
+    // ---------------------------------------------------------
+    // World Conversion
+    // ---------------------------------------------------------
+
+    private static int convertStart(CommandContext<ServerCommandSource> context, SubstitutionScheduler scheduler) {
+        ServerCommandSource source = context.getSource();
+
+        if (!WorldConversionJob.start(source.getServer(), scheduler)) {
+            source.sendError(Text.literal("A world conversion is already running."));
+            return 0;
+        }
+
+        source.sendFeedback(() -> Text.literal("World conversion started."), true);
+        return 1;
+    }
+
+    private static int convertStop(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        if (!WorldConversionJob.stop()) {
+            source.sendError(Text.literal("No world conversion is running."));
+            return 0;
+        }
+
+        source.sendFeedback(() -> Text.literal("World conversion stopped; it will resume from its checkpoint."), true);
+        return 1;
+    }
+
+    private static int convertStatus(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        String status = WorldConversionJob.status();
+
+        source.sendFeedback(
+                () -> Text.literal(status == null ? "No world conversion is running." : status),
+                false
+        );
+        return 1;
+    }
+
+    // ---------------------------------------------------------
+    // Scheduler
+    // ---------------------------------------------------------
+
+    private static int queueStatus(CommandContext<ServerCommandSource> context, SubstitutionScheduler scheduler) {
+        int queued = scheduler.getQueueDepth();
+        int inFlight = scheduler.getInFlightCount();
+        int unloaded = scheduler.getUnloadedPendingCount();
+
+        context.getSource().sendFeedback(
+                () -> Text.literal(
+                        "Queued: " + queued
+                                + ", in analysis: " + inFlight
+                                + ", pending after unload: " + unloaded
+                ),
+                false
+        );
+        return queued;
+    }
+
+    // ---------------------------------------------------------
+    // Diagnostics
+    // ---------------------------------------------------------
+
+    private static int missingProperties(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+        List<String> report = MissingPropertyLog.report();
+
+        if (report.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No missing properties recorded."), false);
+            return 0;
+        }
+
+        source.sendFeedback(() -> Text.literal("Properties dropped by substitution (" + report.size() + "):"), false);
+        for (String line : report) {
+            source.sendFeedback(() -> Text.literal("  " + line), false);
+        }
+        return report.size();
+    }
+
+    // ---------------------------------------------------------
+    // Config
+    // ---------------------------------------------------------
+
+    private static int reload(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        if (!ConfigManager.reload()) {
+            source.sendError(Text.literal("Config could not be read; keeping the current config. See the server log."));
+            return 0;
+        }
+
+        int mappings = ConfigManager.getCompiledMappings().getMappingCount();
+        source.sendFeedback(() -> Text.literal("Config reloaded (" + mappings + " active mappings)."), true);
+        return 1;
+    }
+
+    // ---------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------
+
+    private static int stats(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        if (ConfigManager.getConfig().isDryRun()) {
+            source.sendFeedback(() -> Text.literal("Dry run: counts show what would be replaced; nothing is written"), false);
+        }
+
+        for (ServerWorld world : source.getServer().getWorlds()) {
+            DimensionMetrics metrics = SubstitutionMetrics.forWorld(world);
+            source.sendFeedback(() -> Text.literal(
+                    world.getRegistryKey().getValue()
+                            + ": scanned " + metrics.getChunksScanned()
+                            + ", skipped " + metrics.getChunksSkipped()
+                            + ", converted " + metrics.getChunksConverted()
+                            + ", blocks replaced " + metrics.getBlocksReplaced()
+                            + ", block entities migrated " + metrics.getBlockEntitiesMigrated()
+            ), false);
+            source.sendFeedback(() -> Text.literal("  scan  " + formatLatency(metrics.getScanLatency())), false);
+            source.sendFeedback(() -> Text.literal("  write " + formatLatency(metrics.getWriteLatency())), false);
+
+            for (Map.Entry<String, Long> mapping : metrics.getTopMappings(STATS_TOP_MAPPINGS)) {
+                source.sendFeedback(() -> Text.literal("  " + mapping.getKey() + " : " + mapping.getValue()), false);
+            }
+        }
+        return 1;
+    }
+
+    private static String formatLatency(LatencyHistogram histogram) {
+        return "n=" + histogram.getCount()
+                + " mean " + formatNanos(histogram.getMean())
+                + " p50 " + formatNanos(histogram.getPercentile(50))
+                + " p99 " + formatNanos(histogram.getPercentile(99))
+                + " max " + formatNanos(histogram.getMax());
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000L) {
+            return String.format("%.1fms", nanos / 1_000_000.0);
+        }
+        return String.format("%.1fus", nanos / 1_000.0);
+    }
+}
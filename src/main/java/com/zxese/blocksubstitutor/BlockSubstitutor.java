@@ -1,32 +1,29 @@
 package com.zxese.blocksubstitutor;
 
-import com.zxese.blocksubstitutor.config.BlockSubConfig;
 import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.config.ConfigWatcher;
+import com.zxese.blocksubstitutor.engine.CompiledMappings;
+import com.zxese.blocksubstitutor.engine.DryRunAudit;
+import com.zxese.blocksubstitutor.engine.SectionScanPool;
+import com.zxese.blocksubstitutor.engine.SubstitutionMarkers;
+import com.zxese.blocksubstitutor.engine.SubstitutionScheduler;
+import com.zxese.blocksubstitutor.engine.WorldConversionJob;
+import com.zxese.blocksubstitutor.metrics.MetricsDump;
+import com.zxese.blocksubstitutor.metrics.ReplacementLog;
+import com.zxese.blocksubstitutor.metrics.SubstitutionMetrics;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
-
-import net.minecraft.block.Block;
-import net.minecraft.block.BlockState;
-import net.minecraft.block.entity.BlockEntity;
-
-import net.minecraft.nbt.NbtCompound;
-
-import net.minecraft.registry.Registries;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.loader.api.FabricLoader;
 
 import net.minecraft.server.world.ServerWorld;
 
-import net.minecraft.state.property.Property;
-
-import net.minecraft.util.Identifier;
-import net.minecraft.util.math.BlockPos;
-
 import net.minecraft.world.chunk.WorldChunk;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.Path;
 
 /**
  * BlockSubstitutor
@@ -38,19 +35,24 @@ import java.util.Set;
  *   - Full property preservation
  *   - Block entity NBT preservation
  *   - Missing property logging (once per block pair)
- *   - Summary-style replacement logging
+ *   - Precompiled state lookup table (no string work per block)
+ *   - Batched section writes (configurable update policy)
+ *   - Persistent per-chunk markers to skip already converted chunks
+ *   - Windowed, off-thread replacement logging (console or JSON lines)
  *   - All-dimension support
+ *   - Optional whole-world conversion at startup or by command
+ *   - Optional off-thread analysis with tick-budgeted writes
+ *   - Tick-budgeted, player-prioritized chunk queue
+ *   - Per-dimension metrics (/blocksub stats, optional periodic dump)
+ *   - Hot config reload (/blocksub reload, optional file watch)
+ *   - Glob, regex and block tag mapping keys
+ *   - Dry-run mode with an audit report (in game and offline)
+ *   - Optional palette rewrite while chunks are read from disk (mixin)
  */
 public class BlockSubstitutor implements ModInitializer {
 
-    /**
-     * Tracks which missing properties have already been logged for each
-     * original -> replacement pair. Prevents log spam.
-     *
-     * Key format: "minecraft:oldblock -> minecraft:newblock"
-     * Value: Set of property names already logged.
-     */
-    private final Map<String, Set<String>> missingPropertyLog = new HashMap<>();
+    /** Decides when loaded chunks are processed (see ProcessingMode). */
+    private final SubstitutionScheduler scheduler = new SubstitutionScheduler();
 
     @Override
     public void onInitialize() {
@@ -58,14 +60,68 @@ public class BlockSubstitutor implements ModInitializer {
         // ---------------------------------------------------------
         // 1. Load config at startup
         // ---------------------------------------------------------
-        ConfigManager.load(
-                net.fabricmc.loader.api.FabricLoader.getInstance().getConfigDir()
-        );
+        Path configDir = FabricLoader.getInstance().getConfigDir();
+        ConfigManager.load(configDir);
+
+        // Replacement log and metrics files go next to the game logs
+        Path logDir = FabricLoader.getInstance().getGameDir().resolve("logs");
 
         // ---------------------------------------------------------
         // 2. Register chunk-load scanning (core behavior)
         // ---------------------------------------------------------
         ServerChunkEvents.CHUNK_LOAD.register(this::replaceBlocksInChunk);
+        ServerChunkEvents.CHUNK_UNLOAD.register(scheduler::onChunkUnload);
+
+        // ---------------------------------------------------------
+        // 3. Compile mappings once every mod has registered its blocks
+        // ---------------------------------------------------------
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> {
+            ConfigManager.recompile();
+            ReplacementLog.start(logDir);
+        });
+
+        // Tag mappings are expanded at compile time; tags change with data packs
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register(
+                (server, resourceManager, success) -> ConfigManager.recompile()
+        );
+
+        // ---------------------------------------------------------
+        // 4. Whole-world conversion (startup option and /blocksub convert)
+        // ---------------------------------------------------------
+        ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+            if (ConfigManager.getConfig().isScanOverworldOnStartup()) {
+                WorldConversionJob.start(server, scheduler);
+            }
+            MetricsDump.start(logDir, ConfigManager.getConfig().getMetricsDumpIntervalSeconds());
+            if (ConfigManager.getConfig().isWatchConfigFile()) {
+                ConfigWatcher.start(configDir);
+            }
+        });
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            WorldConversionJob.stop();
+            scheduler.shutdown();
+            SectionScanPool.shutdown();
+            MetricsDump.stop(logDir);
+            if (ConfigManager.getConfig().isDryRun()) {
+                MetricsDump.writeAudit(logDir);
+            }
+            DryRunAudit.clear();
+            SubstitutionMetrics.clear();
+            ReplacementLog.stop();
+            ConfigWatcher.stop();
+        });
+
+        // ---------------------------------------------------------
+        // 5. Drain queued chunks within the tick budget
+        // ---------------------------------------------------------
+        ServerTickEvents.END_SERVER_TICK.register(scheduler::tick);
+
+        // ---------------------------------------------------------
+        // 6. /blocksub commands
+        // ---------------------------------------------------------
+        CommandRegistrationCallback.EVENT.register(
+                (dispatcher, registryAccess, environment) -> BlockSubCommands.register(dispatcher, scheduler)
+        );
 
         System.out.println("[BlockSubstitutor] Initialized (chunk-load scanning active).");
     }
@@ -77,180 +133,27 @@ public class BlockSubstitutor implements ModInitializer {
     /**
      * Scans a single chunk and replaces blocks according to the config mapping.
      * This is called on each chunk load.
+     *
+     * Scanning is read-only (see ChunkScanner); all writes are then applied as
+     * one batch according to the configured UpdatePolicy (see ChunkWriter).
+     * Depending on the ProcessingMode the chunk is processed right away or
+     * queued for the tick-budgeted scheduler (see SubstitutionScheduler).
      */
     private void replaceBlocksInChunk(ServerWorld world, WorldChunk chunk) {
 
-        BlockSubConfig config = ConfigManager.getConfig();
-        Map<String, String> mappings = config.getBlockMappings();
+        // Per-dimension table; empty for dimensions a profile disables
+        CompiledMappings mappings = ConfigManager.getCompiledMappings(world.getRegistryKey());
 
         if (mappings.isEmpty()) {
             return;
         }
 
-        boolean logReplacements = config.isLogReplacements();
-
-        // Summary counter: "old -> new" -> count
-        Map<String, Integer> replacementCounts = new HashMap<>();
-
-        int startX = chunk.getPos().getStartX();
-        int startZ = chunk.getPos().getStartZ();
-
-        for (int dx = 0; dx < 16; dx++) {
-            for (int dz = 0; dz < 16; dz++) {
-                for (int y = world.getBottomY(); y < world.getTopY(); y++) {
-
-                    BlockPos pos = new BlockPos(startX + dx, y, startZ + dz);
-                    BlockState originalState = world.getBlockState(pos);
-
-                    Identifier originalId = Registries.BLOCK.getId(originalState.getBlock());
-                    if (originalId == null) {
-                        continue;
-                    }
-
-                    String originalIdStr = originalId.toString();
-                    if (!mappings.containsKey(originalIdStr)) {
-                        continue;
-                    }
-
-                    String replacementIdStr = mappings.get(originalIdStr);
-                    Block replacementBlock = Registries.BLOCK.get(new Identifier(replacementIdStr));
-                    if (replacementBlock == null) {
-                        continue;
-                    }
-
-                    replaceSingleBlock(
-                            world,
-                            pos,
-                            originalState,
-                            originalIdStr,
-                            replacementBlock,
-                            replacementIdStr
-                    );
-
-                    // Count replacement for summary
-                    String key = originalIdStr + " -> " + replacementIdStr;
-                    replacementCounts.put(key, replacementCounts.getOrDefault(key, 0) + 1);
-                }
-            }
-        }
-
-        // Print summary if enabled
-        if (logReplacements && !replacementCounts.isEmpty()) {
-            System.out.println(
-                    "[BlockSubstitutor] Replacement summary for chunk "
-                            + chunk.getPos().x + ", " + chunk.getPos().z
-                            + " in dimension " + world.getRegistryKey().getValue() + ":"
-            );
-
-            for (Map.Entry<String, Integer> entry : replacementCounts.entrySet()) {
-                System.out.println("  " + entry.getKey() + " : " + entry.getValue());
-            }
-        }
-    }
-
-    // =========================================================
-    // Block Replacement Logic
-    // =========================================================
-
-    /**
-     * Replaces a single block at a position with full property and block entity preservation.
-     */
-    private void replaceSingleBlock(
-            ServerWorld world,
-            BlockPos pos,
-            BlockState originalState,
-            String originalId,
-            Block replacementBlock,
-            String replacementId
-    ) {
-        BlockState replacementBaseState = replacementBlock.getDefaultState();
-
-        BlockState finalState = copySharedProperties(
-                originalId,
-                replacementId,
-                originalState,
-                replacementBaseState
-        );
-
-        BlockEntity originalBe = world.getBlockEntity(pos);
-        NbtCompound beNbt = null;
-
-        if (originalBe != null) {
-            beNbt = originalBe.createNbtWithId();
-        }
-
-        world.setBlockState(pos, finalState, Block.NOTIFY_ALL);
-
-        if (beNbt != null) {
-            BlockEntity newBe = world.getBlockEntity(pos);
-            if (newBe != null) {
-                newBe.readNbt(beNbt);
-                newBe.markDirty();
-            }
-        }
-    }
-
-    /**
-     * Copies all shared properties from the original blockstate to the replacement blockstate.
-     */
-    private BlockState copySharedProperties(
-            String originalId,
-            String replacementId,
-            BlockState from,
-            BlockState to
-    ) {
-        for (Property<?> property : from.getProperties()) {
-
-            if (to.contains(property)) {
-                to = safelyApplyProperty(from, to, property);
-            } else {
-                logMissingPropertyOnce(originalId, replacementId, property.getName());
-            }
-        }
-
-        return to;
-    }
-
-    /**
-     * Safely applies a property value from one blockstate to another.
-     */
-    private <T extends Comparable<T>> BlockState safelyApplyProperty(
-            BlockState from,
-            BlockState to,
-            Property<T> property
-    ) {
-        T value = from.get(property);
-
-        try {
-            return to.with(property, value);
-        } catch (Exception e) {
-            return to;
+        // Skip chunks already converted with this exact mapping set
+        if (SubstitutionMarkers.isDone(chunk, mappings.getFingerprint())) {
+            SubstitutionMetrics.forWorld(world).recordSkipped();
+            return;
         }
-    }
 
-    /**
-     * Logs a missing property once per original -> replacement pair.
-     */
-    private void logMissingPropertyOnce(
-            String originalId,
-            String replacementId,
-            String propertyName
-    ) {
-        String key = originalId + " -> " + replacementId;
-
-        Set<String> alreadyLogged =
-                missingPropertyLog.computeIfAbsent(key, k -> new HashSet<>());
-
-        if (alreadyLogged.add(propertyName)) {
-            System.out.println(
-                    "[BlockSubstitutor] Property '"
-                    + propertyName
-                    + "' from "
-                    + originalId
-                    + " is not supported by "
-                    + replacementId
-                    + " (future messages suppressed for this pair)"
-            );
-        }
+        scheduler.onChunkLoad(world, chunk, mappings);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.zxese.blocksubstitutor.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * BlockEntityRule
+ *
+ * Config form of the block entity data transform for one source block,
+ * stored in BlockSubConfig.blockEntityRules under the source block ID.
+ * Applied in this order to the old block entity's NBT before it is
+ * loaded into the replacement block entity:
+ *
+ *   drop     - keys to remove
+ *   rename   - old key -> new key
+ *   convert  - key -> numeric or string type (byte, short, int, long,
+ *              float, double, string)
+ *   keepOnly - if set, every other top-level key is removed
+ *              (an empty list drops all data)
+ *
+ * Keys in drop, rename and convert may be dotted paths into nested
+ * compounds (e.g. "normal_config.spawn_range"). Compiled once into an
+ * engine.BlockEntityTransform.
+ */
+public final class BlockEntityRule {
+
+    private List<String> drop;
+    private Map<String, String> rename;
+    private Map<String, String> convert;
+    private List<String> keepOnly;
+
+    /**
+     * Default constructor for Gson.
+     */
+    public BlockEntityRule() {
+        this.drop = new ArrayList<>();
+        this.rename = new LinkedHashMap<>();
+        this.convert = new LinkedHashMap<>();
+        this.keepOnly = null;
+    }
+
+    // ---------------------------------------------------------
+    // Getters
+    // ---------------------------------------------------------
+
+    public List<String> getDrop() {
+        return drop == null ? List.of() : drop;
+    }
+
+    public Map<String, String> getRename() {
+        return rename == null ? Map.of() : rename;
+    }
+
+    public Map<String, String> getConvert() {
+        return convert == null ? Map.of() : convert;
+    }
+
+    /** Null when no keepOnly filter is set. */
+    public List<String> getKeepOnly() {
+        return keepOnly;
+    }
+
+    // ---------------------------------------------------------
+    // Utility Overrides
+    // ---------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return "BlockEntityRule{" +
+                "drop=" + drop +
+                ", rename=" + rename +
+                ", convert=" + convert +
+                ", keepOnly=" + keepOnly +
+                "}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BlockEntityRule)) return false;
+        BlockEntityRule that = (BlockEntityRule) o;
+        return Objects.equals(drop, that.drop) &&
+                Objects.equals(rename, that.rename) &&
+                Objects.equals(convert, that.convert) &&
+                Objects.equals(keepOnly, that.keepOnly);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(drop, rename, convert, keepOnly);
+    }
+}
@@ -2,6 +2,7 @@ package com.zxese.blocksubstitutor.config;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -12,6 +13,9 @@ import java.util.Objects;
  * This includes:
  *   - Block downgrade mappings
  *   - Replacement logging toggle
+ *   - Block update policy for replacements
+ *   - Block entity data transforms
+ *   - World conversion and chunk processing settings
  *
  * The defaults are loaded from blocksubstitutor-defaults.json.
  */
@@ -19,19 +23,95 @@ public final class BlockSubConfig {
 
     private int configVersion;
 
-    /** Mapping: source block ID -> replacement block ID */
+    /** Mapping: source block ID -> replacement block ID, in file order */
     private Map<String, String> blockMappings;
 
     /** Whether to log replacement summaries */
     private boolean logReplacements;
 
+    /** How replacement blocks are written into the chunk */
+    private UpdatePolicy updatePolicy;
+
+    /** Whether to convert every generated chunk of every dimension when the server starts */
+    private boolean scanOverworldOnStartup;
+
+    /** Worker threads for the world conversion job (0 = one per core) */
+    private int conversionThreads;
+
+    /** Chunks loaded per main-thread batch during world conversion */
+    private int conversionBatchSize;
+
+    /** Maximum chunks queued for loading at once during world conversion */
+    private int conversionMaxChunksInFlight;
+
+    /** Where loaded chunks are scanned: inline on load or on a background executor */
+    private ProcessingMode processingMode;
+
+    /** Server-thread time per tick for applying queued substitutions, in microseconds */
+    private int tickBudgetMicros;
+
+    /** Order in which queued chunks are processed (SCHEDULED and ASYNC modes) */
+    private ChunkPriority chunkPriority;
+
+    /** Maximum chunks being analysed or awaiting writes at once (ASYNC mode) */
+    private int maxChunksInAnalysis;
+
+    /** Interval for appending metrics to logs/blocksubstitutor-metrics.jsonl, in seconds (0 = off) */
+    private int metricsDumpIntervalSeconds;
+
+    /** Window over which replacement summaries are merged into one line per dimension, in seconds */
+    private int replacementLogWindowSeconds;
+
+    /** Where replacement summaries are written: console text or a JSON-lines file under logs/ */
+    private ReplacementLogFormat replacementLogFormat;
+
+    /** Whether to reload the config automatically when blocksubstitutor.json changes on disk */
+    private boolean watchConfigFile;
+
+    /** Block entity data transforms per source block ID, applied when the block is replaced */
+    private Map<String, BlockEntityRule> blockEntityRules;
+
+    /** Rewrite section palettes while chunks are read from disk, before the chunk is built. */
+    private boolean substituteOnDeserialize;
+
+    /** Threads used to scan the sections of one chunk in parallel (0 or 1 = off). */
+    private int sectionScanParallelism;
+
+    /** Non-empty sections a chunk needs before its scan is split across threads. */
+    private int sectionScanMinSections;
+
+    /** Scan and report what would be replaced without changing any chunk. */
+    private boolean dryRun;
+
+    /** Mapping overrides per dimension ID; dimensions without a profile use blockMappings */
+    private Map<String, DimensionProfile> dimensionProfiles;
+
     /**
      * Default constructor for Gson.
      */
     public BlockSubConfig() {
         this.configVersion = 1;
-        this.blockMappings = new HashMap<>();
+        this.blockMappings = new LinkedHashMap<>();
         this.logReplacements = true;
+        this.updatePolicy = UpdatePolicy.SECTION_BULK;
+        this.scanOverworldOnStartup = false;
+        this.conversionThreads = 0;
+        this.conversionBatchSize = 64;
+        this.conversionMaxChunksInFlight = 256;
+        this.processingMode = ProcessingMode.IMMEDIATE;
+        this.tickBudgetMicros = 2000;
+        this.chunkPriority = ChunkPriority.NEAREST_PLAYER;
+        this.maxChunksInAnalysis = 64;
+        this.metricsDumpIntervalSeconds = 0;
+        this.replacementLogWindowSeconds = 30;
+        this.replacementLogFormat = ReplacementLogFormat.TEXT;
+        this.watchConfigFile = false;
+        this.blockEntityRules = new HashMap<>();
+        this.substituteOnDeserialize = false;
+        this.sectionScanParallelism = 0;
+        this.sectionScanMinSections = 24;
+        this.dryRun = false;
+        this.dimensionProfiles = new LinkedHashMap<>();
     }
 
     /**
@@ -43,8 +123,27 @@ public final class BlockSubConfig {
             boolean logReplacements
     ) {
         this.configVersion = configVersion;
-        this.blockMappings = new HashMap<>(blockMappings);
+        this.blockMappings = new LinkedHashMap<>(blockMappings);
         this.logReplacements = logReplacements;
+        this.updatePolicy = UpdatePolicy.SECTION_BULK;
+        this.scanOverworldOnStartup = false;
+        this.conversionThreads = 0;
+        this.conversionBatchSize = 64;
+        this.conversionMaxChunksInFlight = 256;
+        this.processingMode = ProcessingMode.IMMEDIATE;
+        this.tickBudgetMicros = 2000;
+        this.chunkPriority = ChunkPriority.NEAREST_PLAYER;
+        this.maxChunksInAnalysis = 64;
+        this.metricsDumpIntervalSeconds = 0;
+        this.replacementLogWindowSeconds = 30;
+        this.replacementLogFormat = ReplacementLogFormat.TEXT;
+        this.watchConfigFile = false;
+        this.blockEntityRules = new HashMap<>();
+        this.substituteOnDeserialize = false;
+        this.sectionScanParallelism = 0;
+        this.sectionScanMinSections = 24;
+        this.dryRun = false;
+        this.dimensionProfiles = new LinkedHashMap<>();
     }
 
     // ---------------------------------------------------------
@@ -63,6 +162,91 @@ public final class BlockSubConfig {
         return logReplacements;
     }
 
+    public UpdatePolicy getUpdatePolicy() {
+        return updatePolicy;
+    }
+
+    public boolean isScanOverworldOnStartup() {
+        return scanOverworldOnStartup;
+    }
+
+    public int getConversionThreads() {
+        return conversionThreads;
+    }
+
+    public int getConversionBatchSize() {
+        return conversionBatchSize;
+    }
+
+    public int getConversionMaxChunksInFlight() {
+        return conversionMaxChunksInFlight;
+    }
+
+    public ProcessingMode getProcessingMode() {
+        return processingMode;
+    }
+
+    public int getTickBudgetMicros() {
+        return tickBudgetMicros;
+    }
+
+    public ChunkPriority getChunkPriority() {
+        return chunkPriority;
+    }
+
+    public int getMaxChunksInAnalysis() {
+        return maxChunksInAnalysis;
+    }
+
+    public int getMetricsDumpIntervalSeconds() {
+        return metricsDumpIntervalSeconds;
+    }
+
+    public int getReplacementLogWindowSeconds() {
+        return replacementLogWindowSeconds;
+    }
+
+    public ReplacementLogFormat getReplacementLogFormat() {
+        return replacementLogFormat;
+    }
+
+    public boolean isWatchConfigFile() {
+        return watchConfigFile;
+    }
+
+    public Map<String, BlockEntityRule> getBlockEntityRules() {
+        return Collections.unmodifiableMap(blockEntityRules);
+    }
+
+    public boolean isSubstituteOnDeserialize() {
+        return substituteOnDeserialize;
+    }
+
+    public int getSectionScanParallelism() {
+        return sectionScanParallelism;
+    }
+
+    public int getSectionScanMinSections() {
+        return sectionScanMinSections;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public Map<String, DimensionProfile> getDimensionProfiles() {
+        return Collections.unmodifiableMap(dimensionProfiles);
+    }
+
+    /**
+     * Returns the mappings that apply in a dimension: its profile resolved
+     * against blockMappings, or blockMappings itself without a profile.
+     */
+    public Map<String, String> getBlockMappings(String dimensionId) {
+        DimensionProfile profile = dimensionProfiles.get(dimensionId);
+        return profile == null ? getBlockMappings() : profile.resolveMappings(blockMappings);
+    }
+
     // ---------------------------------------------------------
     // Setters (used by Gson and config screen)
     // ---------------------------------------------------------
@@ -72,13 +256,89 @@ public final class BlockSubConfig {
     }
 
     public void setBlockMappings(Map<String, String> blockMappings) {
-        this.blockMappings = new HashMap<>(blockMappings);
+        this.blockMappings = new LinkedHashMap<>(blockMappings);
     }
 
     public void setLogReplacements(boolean value) {
         this.logReplacements = value;
     }
 
+    public void setUpdatePolicy(UpdatePolicy updatePolicy) {
+        this.updatePolicy = updatePolicy;
+    }
+
+    public void setScanOverworldOnStartup(boolean scanOverworldOnStartup) {
+        this.scanOverworldOnStartup = scanOverworldOnStartup;
+    }
+
+    public void setConversionThreads(int conversionThreads) {
+        this.conversionThreads = conversionThreads;
+    }
+
+    public void setConversionBatchSize(int conversionBatchSize) {
+        this.conversionBatchSize = conversionBatchSize;
+    }
+
+    public void setConversionMaxChunksInFlight(int conversionMaxChunksInFlight) {
+        this.conversionMaxChunksInFlight = conversionMaxChunksInFlight;
+    }
+
+    public void setProcessingMode(ProcessingMode processingMode) {
+        this.processingMode = processingMode;
+    }
+
+    public void setTickBudgetMicros(int tickBudgetMicros) {
+        this.tickBudgetMicros = tickBudgetMicros;
+    }
+
+    public void setChunkPriority(ChunkPriority chunkPriority) {
+        this.chunkPriority = chunkPriority;
+    }
+
+    public void setMaxChunksInAnalysis(int maxChunksInAnalysis) {
+        this.maxChunksInAnalysis = maxChunksInAnalysis;
+    }
+
+    public void setMetricsDumpIntervalSeconds(int metricsDumpIntervalSeconds) {
+        this.metricsDumpIntervalSeconds = metricsDumpIntervalSeconds;
+    }
+
+    public void setReplacementLogWindowSeconds(int replacementLogWindowSeconds) {
+        this.replacementLogWindowSeconds = replacementLogWindowSeconds;
+    }
+
+    public void setReplacementLogFormat(ReplacementLogFormat replacementLogFormat) {
+        this.replacementLogFormat = replacementLogFormat;
+    }
+
+    public void setWatchConfigFile(boolean watchConfigFile) {
+        this.watchConfigFile = watchConfigFile;
+    }
+
+    public void setBlockEntityRules(Map<String, BlockEntityRule> blockEntityRules) {
+        this.blockEntityRules = blockEntityRules;
+    }
+
+    public void setSubstituteOnDeserialize(boolean substituteOnDeserialize) {
+        this.substituteOnDeserialize = substituteOnDeserialize;
+    }
+
+    public void setSectionScanParallelism(int sectionScanParallelism) {
+        this.sectionScanParallelism = sectionScanParallelism;
+    }
+
+    public void setSectionScanMinSections(int sectionScanMinSections) {
+        this.sectionScanMinSections = sectionScanMinSections;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public void setDimensionProfiles(Map<String, DimensionProfile> dimensionProfiles) {
+        this.dimensionProfiles = dimensionProfiles;
+    }
+
     // ---------------------------------------------------------
     // Validation and Repair
     // ---------------------------------------------------------
@@ -89,10 +349,10 @@ public final class BlockSubConfig {
     public void validateAndRepair() {
 
         if (blockMappings == null) {
-            blockMappings = new HashMap<>();
+            blockMappings = new LinkedHashMap<>();
         }
 
-        BlockSubConfig defaults = ConfigManager.loadDefaultsFromResource();
+        BlockSubConfig defaults = ConfigManager.getDefaults();
         Map<String, String> defaultMappings = defaults.getBlockMappings();
 
         // Remove invalid entries
@@ -108,6 +368,94 @@ public final class BlockSubConfig {
             blockMappings.putIfAbsent(entry.getKey(), entry.getValue());
         }
 
+        if (blockEntityRules == null) {
+            blockEntityRules = new HashMap<>();
+        }
+
+        blockEntityRules.entrySet().removeIf(entry ->
+                entry.getKey() == null ||
+                entry.getKey().trim().isEmpty() ||
+                entry.getValue() == null
+        );
+
+        // Add missing default block entity rules
+        for (Map.Entry<String, BlockEntityRule> entry : defaults.getBlockEntityRules().entrySet()) {
+            blockEntityRules.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        if (updatePolicy == null) {
+            updatePolicy = UpdatePolicy.SECTION_BULK;
+        }
+
+        if (conversionThreads < 0) {
+            conversionThreads = 0;
+        }
+
+        if (conversionBatchSize < 1) {
+            conversionBatchSize = 64;
+        }
+
+        if (conversionMaxChunksInFlight < conversionBatchSize) {
+            conversionMaxChunksInFlight = conversionBatchSize;
+        }
+
+        if (processingMode == null) {
+            processingMode = ProcessingMode.IMMEDIATE;
+        }
+
+        if (tickBudgetMicros < 1) {
+            tickBudgetMicros = 2000;
+        }
+
+        if (chunkPriority == null) {
+            chunkPriority = ChunkPriority.NEAREST_PLAYER;
+        }
+
+        if (maxChunksInAnalysis < 1) {
+            maxChunksInAnalysis = 64;
+        }
+
+        if (metricsDumpIntervalSeconds < 0) {
+            metricsDumpIntervalSeconds = 0;
+        }
+
+        if (replacementLogWindowSeconds < 1) {
+            replacementLogWindowSeconds = 30;
+        }
+
+        if (replacementLogFormat == null) {
+            replacementLogFormat = ReplacementLogFormat.TEXT;
+        }
+
+        if (sectionScanParallelism < 0) {
+            sectionScanParallelism = 0;
+        }
+
+        if (sectionScanMinSections < 1) {
+            sectionScanMinSections = 24;
+        }
+
+        if (dimensionProfiles == null) {
+            dimensionProfiles = new LinkedHashMap<>();
+        }
+
+        // Keys become full dimension IDs: "the_nether" -> "minecraft:the_nether"
+        Map<String, DimensionProfile> profiles = new LinkedHashMap<>();
+        for (Map.Entry<String, DimensionProfile> entry : dimensionProfiles.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().trim().isEmpty() || entry.getValue() == null) {
+                continue;
+            }
+
+            String dimensionId = entry.getKey().trim();
+            if (dimensionId.indexOf(':') < 0) {
+                dimensionId = "minecraft:" + dimensionId;
+            }
+
+            entry.getValue().repair();
+            profiles.putIfAbsent(dimensionId, entry.getValue());
+        }
+        dimensionProfiles = profiles;
+
         // Ensure config version is current
         this.configVersion = 1;
     }
@@ -128,7 +476,7 @@ public final class BlockSubConfig {
     // ---------------------------------------------------------
 
     public static Map<String, String> getFallbackDefaults() {
-        Map<String, String> map = new HashMap<>();
+        Map<String, String> map = new LinkedHashMap<>();
 
         map.put("minecraft:crafter", "minecraft:crafting_table");
         map.put("minecraft:copper_door", "minecraft:iron_door");
@@ -148,6 +496,25 @@ public final class BlockSubConfig {
                 "configVersion=" + configVersion +
                 ", blockMappings=" + blockMappings.size() +
                 ", logReplacements=" + logReplacements +
+                ", updatePolicy=" + updatePolicy +
+                ", scanOverworldOnStartup=" + scanOverworldOnStartup +
+                ", conversionThreads=" + conversionThreads +
+                ", conversionBatchSize=" + conversionBatchSize +
+                ", conversionMaxChunksInFlight=" + conversionMaxChunksInFlight +
+                ", processingMode=" + processingMode +
+                ", tickBudgetMicros=" + tickBudgetMicros +
+                ", chunkPriority=" + chunkPriority +
+                ", maxChunksInAnalysis=" + maxChunksInAnalysis +
+                ", metricsDumpIntervalSeconds=" + metricsDumpIntervalSeconds +
+                ", replacementLogWindowSeconds=" + replacementLogWindowSeconds +
+                ", replacementLogFormat=" + replacementLogFormat +
+                ", watchConfigFile=" + watchConfigFile +
+                ", blockEntityRules=" + blockEntityRules.size() +
+                ", substituteOnDeserialize=" + substituteOnDeserialize +
+                ", sectionScanParallelism=" + sectionScanParallelism +
+                ", sectionScanMinSections=" + sectionScanMinSections +
+                ", dryRun=" + dryRun +
+                ", dimensionProfiles=" + dimensionProfiles.size() +
                 "}";
     }
 
@@ -158,11 +525,53 @@ public final class BlockSubConfig {
         BlockSubConfig that = (BlockSubConfig) o;
         return configVersion == that.configVersion &&
                 logReplacements == that.logReplacements &&
+                updatePolicy == that.updatePolicy &&
+                scanOverworldOnStartup == that.scanOverworldOnStartup &&
+                conversionThreads == that.conversionThreads &&
+                conversionBatchSize == that.conversionBatchSize &&
+                conversionMaxChunksInFlight == that.conversionMaxChunksInFlight &&
+                processingMode == that.processingMode &&
+                tickBudgetMicros == that.tickBudgetMicros &&
+                chunkPriority == that.chunkPriority &&
+                maxChunksInAnalysis == that.maxChunksInAnalysis &&
+                metricsDumpIntervalSeconds == that.metricsDumpIntervalSeconds &&
+                replacementLogWindowSeconds == that.replacementLogWindowSeconds &&
+                replacementLogFormat == that.replacementLogFormat &&
+                watchConfigFile == that.watchConfigFile &&
+                Objects.equals(blockEntityRules, that.blockEntityRules) &&
+                substituteOnDeserialize == that.substituteOnDeserialize &&
+                sectionScanParallelism == that.sectionScanParallelism &&
+                sectionScanMinSections == that.sectionScanMinSections &&
+                dryRun == that.dryRun &&
+                Objects.equals(dimensionProfiles, that.dimensionProfiles) &&
                 Objects.equals(blockMappings, that.blockMappings);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(configVersion, blockMappings, logReplacements);
+        return Objects.hash(
+                configVersion,
+                blockMappings,
+                logReplacements,
+                updatePolicy,
+                scanOverworldOnStartup,
+                conversionThreads,
+                conversionBatchSize,
+                conversionMaxChunksInFlight,
+                processingMode,
+                tickBudgetMicros,
+                chunkPriority,
+                maxChunksInAnalysis,
+                metricsDumpIntervalSeconds,
+                replacementLogWindowSeconds,
+                replacementLogFormat,
+                watchConfigFile,
+                blockEntityRules,
+                substituteOnDeserialize,
+                sectionScanParallelism,
+                sectionScanMinSections,
+                dryRun,
+                dimensionProfiles
+        );
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.zxese.blocksubstitutor.config;
+
+/**
+ * ChunkPriority
+ *
+ * Order in which queued chunks are processed each tick.
+ */
+public enum ChunkPriority {
+
+    /** Chunks closest to any player in the same dimension first. */
+    NEAREST_PLAYER,
+
+    /** Chunks in load order. */
+    FIFO
+}
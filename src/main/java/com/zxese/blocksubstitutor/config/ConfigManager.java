@@ -2,18 +2,40 @@ package com.zxese.blocksubstitutor.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import com.zxese.blocksubstitutor.engine.CompiledMappings;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.world.World;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * ConfigManager
  *
@@ -22,21 +44,48 @@ import java.nio.file.Path;
  *   - Loading defaults from resources
  *   - Validating and repairing config
  *   - Saving config back to disk
+ *   - Reloading config at runtime (/blocksub reload, ConfigWatcher)
+ *   - Publishing config and compiled mappings as one ConfigSnapshot
  *
  * The defaults file (blocksubstitutor-defaults.json) is the authoritative
- * source of truth for schema and default values.
+ * source of truth for schema and default values. It is parsed once per
+ * process and cached.
+ *
+ * The config file is read with a streaming JsonReader; the mapping table,
+ * by far its largest part, goes straight into a map without building a
+ * JSON tree, in file order. On load, the file is only written back when
+ * repair changed its content: the file is re-emitted token by token in
+ * the layout Gson writes and its hash compared with that of the repaired
+ * config, so whitespace and line-ending edits alone never rewrite the
+ * user's file, while missing or repaired fields still do.
+ *
+ * The published snapshot is never modified. Editors work on a copy from
+ * getEditableCopy() and hand it back through save(), which publishes a
+ * new snapshot with a single atomic swap.
  */
 public final class ConfigManager {
 
-    private static final String CONFIG_FILE_NAME = "blocksubstitutor.json";
+    static final String CONFIG_FILE_NAME = "blocksubstitutor.json";
 
     private static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
             .disableHtmlEscaping()
             .create();
 
-    /** The currently loaded config instance. */
-    private static BlockSubConfig CURRENT_CONFIG;
+    /** The currently published config and lookup table. */
+    private static final AtomicReference<ConfigSnapshot> CURRENT_SNAPSHOT = new AtomicReference<>();
+
+    /** Bundled defaults, parsed on first use; shared and never modified. */
+    private static volatile BlockSubConfig DEFAULTS;
+
+    /** Directory the config was loaded from; used by reload(). */
+    private static volatile Path CONFIG_DIRECTORY;
+
+    /**
+     * Set once the block registry is populated. From then on snapshots are
+     * compiled before they are published, on the publishing thread.
+     */
+    private static volatile boolean REGISTRIES_READY;
 
     private ConfigManager() {
         // Utility class; no instantiation.
@@ -48,82 +97,365 @@ public final class ConfigManager {
 
     /**
      * Loads the config from disk, validates it, repairs it, and writes
-     * the repaired version back to disk.
+     * the repaired version back to disk if repair changed its content.
      */
-    public static void load(Path configDirectory) {
+    public static synchronized void load(Path configDirectory) {
 
+        CONFIG_DIRECTORY = configDirectory;
         Path configPath = configDirectory.resolve(CONFIG_FILE_NAME);
 
-        BlockSubConfig config;
+        byte[] onDisk = Files.exists(configPath) ? readBytesOrNull(configPath) : null;
+        BlockSubConfig config = onDisk == null ? null : parseConfigOrNull(onDisk);
 
-        if (Files.exists(configPath)) {
-            config = readConfig(configPath);
-        } else {
+        if (config == null) {
             config = createDefaultConfig();
+        } else {
+            config.validateAndRepair();
         }
 
-        config.validateAndRepair();
-        CURRENT_CONFIG = config;
+        publish(config);
 
-        writeConfig(configPath, config);
+        String repaired = GSON.toJson(config);
+        byte[] onDiskHash = onDisk == null ? null : canonicalHash(onDisk);
+        if (onDiskHash == null || !MessageDigest.isEqual(onDiskHash, contentHash(repaired))) {
+            writeConfig(configPath, repaired.getBytes(StandardCharsets.UTF_8));
+        }
     }
 
     /**
-     * Saves the current config to disk without reloading or repairing it.
-     * Used by the Cloth Config screen when the user clicks Save.
+     * Reads and repairs the config without writing it back or publishing
+     * it; falls back to the defaults when the file is missing or invalid.
+     * Used by tools that must not touch the user's config, such as
+     * RegionConverter.
      */
-    public static void save(Path configDirectory) {
+    public static BlockSubConfig read(Path configDirectory) {
+
+        Path configPath = configDirectory.resolve(CONFIG_FILE_NAME);
+        BlockSubConfig config = Files.exists(configPath) ? readConfigOrNull(configPath) : null;
 
-        if (CURRENT_CONFIG == null) {
-            System.err.println("[BlockSubstitutor] Cannot save config: no config loaded.");
-            return;
+        if (config == null) {
+            return createDefaultConfig();
+        }
+
+        config.validateAndRepair();
+        return config;
+    }
+
+    /**
+     * Re-reads the config file and publishes it if it changed. Unlike
+     * load(), a file that cannot be read keeps the current snapshot, and
+     * nothing is written back. Returns false if the file could not be read.
+     */
+    public static synchronized boolean reload() {
+
+        Path configDirectory = CONFIG_DIRECTORY;
+        if (configDirectory == null) {
+            System.err.println("[BlockSubstitutor] Cannot reload config: no config loaded.");
+            return false;
+        }
+
+        BlockSubConfig config = readConfigOrNull(configDirectory.resolve(CONFIG_FILE_NAME));
+        if (config == null) {
+            return false;
+        }
+
+        config.validateAndRepair();
+
+        if (!config.equals(getConfig())) {
+            publish(config);
+            System.out.println("[BlockSubstitutor] Config reloaded: " + config);
         }
+        return true;
+    }
+
+    /**
+     * Saves an edited config to disk without repairing it and publishes
+     * it. Used by the config screens when the user clicks Save.
+     */
+    public static synchronized void save(Path configDirectory, BlockSubConfig edited) {
+
+        // The caller keeps its instance; the snapshot gets its own
+        BlockSubConfig config = copyOf(edited);
 
         Path configPath = configDirectory.resolve(CONFIG_FILE_NAME);
-        writeConfig(configPath, CURRENT_CONFIG);
+        writeConfig(configPath, GSON.toJson(config).getBytes(StandardCharsets.UTF_8));
+
+        publish(config);
+    }
+
+    /**
+     * Returns the current snapshot. Read it once when config values and
+     * compiled mappings must belong to the same version.
+     */
+    public static ConfigSnapshot getSnapshot() {
+        ConfigSnapshot snapshot = CURRENT_SNAPSHOT.get();
+        if (snapshot == null) {
+            synchronized (ConfigManager.class) {
+                snapshot = CURRENT_SNAPSHOT.get();
+                if (snapshot == null) {
+                    snapshot = publish(createDefaultConfig());
+                }
+            }
+        }
+        return snapshot;
     }
 
     /**
-     * Returns the currently loaded config.
+     * Returns the current config. Read-only: edit a copy from
+     * getEditableCopy() and pass it to save().
      */
     public static BlockSubConfig getConfig() {
-        if (CURRENT_CONFIG == null) {
-            CURRENT_CONFIG = createDefaultConfig();
+        return getSnapshot().getConfig();
+    }
+
+    /**
+     * Returns a private, mutable copy of the current config for editing.
+     */
+    public static BlockSubConfig getEditableCopy() {
+        return copyOf(getConfig());
+    }
+
+    /**
+     * Returns the compiled lookup table for the current global mappings,
+     * compiling it on first use. Chunk work uses the per-dimension
+     * overload below.
+     */
+    public static CompiledMappings getCompiledMappings() {
+        return getSnapshot().getCompiledMappings();
+    }
+
+    /**
+     * Returns the compiled lookup table for a dimension: its profile's
+     * table, the global one, or CompiledMappings.EMPTY when the profile
+     * disables it.
+     */
+    public static CompiledMappings getCompiledMappings(RegistryKey<World> dimension) {
+        return getSnapshot().getCompiledMappings(dimension);
+    }
+
+    /**
+     * Publishes freshly compiled lookup tables for the current config.
+     * Must only be called once the block registry is populated.
+     */
+    public static synchronized CompiledMappings recompile() {
+        REGISTRIES_READY = true;
+
+        ConfigSnapshot snapshot = new ConfigSnapshot(getConfig(), null);
+        CompiledMappings compiled = snapshot.getCompiledMappings();
+        snapshot.compileProfiles();
+        CURRENT_SNAPSHOT.set(snapshot);
+        return compiled;
+    }
+
+    /**
+     * Swaps in a snapshot of the given config. The previous lookup tables
+     * are reused when the mappings, block entity rules and dimension
+     * profiles are unchanged, so in-flight work stays valid.
+     */
+    private static ConfigSnapshot publish(BlockSubConfig config) {
+
+        ConfigSnapshot previous = CURRENT_SNAPSHOT.get();
+        ConfigSnapshot reused = null;
+
+        if (previous != null
+                && previous.isCompiled()
+                && previous.getConfig().getBlockMappings().equals(config.getBlockMappings())
+                && previous.getConfig().getBlockEntityRules().equals(config.getBlockEntityRules())
+                && previous.getConfig().getDimensionProfiles().equals(config.getDimensionProfiles())) {
+            reused = previous;
+        }
+
+        ConfigSnapshot snapshot = new ConfigSnapshot(config, reused);
+
+        // Compile here rather than on the first chunk that needs it
+        if (reused == null && REGISTRIES_READY) {
+            snapshot.getCompiledMappings();
+            snapshot.compileProfiles();
         }
-        return CURRENT_CONFIG;
+
+        CURRENT_SNAPSHOT.set(snapshot);
+        return snapshot;
+    }
+
+    private static BlockSubConfig copyOf(BlockSubConfig config) {
+        return GSON.fromJson(GSON.toJsonTree(config), BlockSubConfig.class);
     }
 
     // ---------------------------------------------------------
     // Reading and Writing
     // ---------------------------------------------------------
 
-    private static BlockSubConfig readConfig(Path path) {
+    /**
+     * Reads the config file, or returns null (after logging why) if it is
+     * missing, empty or invalid.
+     */
+    private static BlockSubConfig readConfigOrNull(Path path) {
+        byte[] content = readBytesOrNull(path);
+        return content == null ? null : parseConfigOrNull(content);
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(path)) {
+    private static byte[] readBytesOrNull(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to read config: " + e.getMessage());
+            return null;
+        }
+    }
 
-            BlockSubConfig loaded = GSON.fromJson(reader, BlockSubConfig.class);
+    /**
+     * Parses config JSON in one streaming pass. blockMappings is read
+     * entry by entry into a map; the remaining, small fields are bound by
+     * Gson as before.
+     */
+    private static BlockSubConfig parseConfigOrNull(byte[] content) {
 
-            if (loaded == null) {
-                System.err.println("[BlockSubstitutor] Config file empty or invalid. Using defaults.");
-                return createDefaultConfig();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(content),
+                StandardCharsets.UTF_8
+        ))) {
+            reader.setLenient(true);
+
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                System.err.println("[BlockSubstitutor] Config file empty or invalid.");
+                return null;
             }
 
-            return loaded;
+            JsonObject otherFields = new JsonObject();
+            Map<String, String> mappings = null;
 
-        } catch (IOException | JsonSyntaxException e) {
-            System.err.println("[BlockSubstitutor] Failed to read config, using defaults: " + e.getMessage());
-            return createDefaultConfig();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("blockMappings") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    mappings = readStringMap(reader);
+                } else {
+                    otherFields.add(name, JsonParser.parseReader(reader));
+                }
+            }
+            reader.endObject();
+
+            BlockSubConfig config = GSON.fromJson(otherFields, BlockSubConfig.class);
+            if (mappings != null) {
+                config.setBlockMappings(mappings);
+            }
+            return config;
+
+        } catch (EOFException e) {
+            System.err.println("[BlockSubstitutor] Config file empty or invalid.");
+            return null;
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            System.err.println("[BlockSubstitutor] Failed to read config: " + e.getMessage());
+            return null;
         }
     }
 
-    private static void writeConfig(Path path, BlockSubConfig config) {
+    /**
+     * Reads a JSON object of string values. Null values are skipped; they
+     * would be removed by validateAndRepair() anyway.
+     */
+    private static Map<String, String> readStringMap(JsonReader reader) throws IOException {
+        Map<String, String> map = new LinkedHashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else {
+                map.put(key, reader.nextString());
+            }
+        }
+        reader.endObject();
 
-        try {
-            Files.createDirectories(path.getParent());
+        return map;
+    }
 
-            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
-                GSON.toJson(config, writer);
+    /**
+     * SHA-256 of JSON already in the layout GSON writes.
+     */
+    private static byte[] contentHash(String canonicalJson) {
+        MessageDigest digest = sha256();
+        return digest.digest(canonicalJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * SHA-256 of config file content re-emitted token by token in the
+     * layout GSON writes, without building a JSON tree. Returns null if
+     * the content is not valid JSON.
+     */
+    private static byte[] canonicalHash(byte[] content) {
+        MessageDigest digest = sha256();
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(content),
+                StandardCharsets.UTF_8
+        ));
+             JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                     new DigestOutputStream(OutputStream.nullOutputStream(), digest),
+                     StandardCharsets.UTF_8
+             ))) {
+            reader.setLenient(true);
+            writer.setIndent("  ");
+            writer.setHtmlSafe(false);
+            writer.setSerializeNulls(false);
+
+            copyValue(reader, writer);
+            writer.flush();
+
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+
+        return digest.digest();
+    }
+
+    private static void copyValue(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT -> {
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copyValue(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
             }
+            case BEGIN_ARRAY -> {
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+            }
+            case STRING -> writer.value(reader.nextString());
+            case NUMBER -> writer.jsonValue(reader.nextString());
+            case BOOLEAN -> writer.value(reader.nextBoolean());
+            case NULL -> {
+                reader.nextNull();
+                writer.nullValue();
+            }
+            default -> throw new IllegalStateException("Unexpected token " + reader.peek());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeConfig(Path path, byte[] content) {
+
+        try {
+            Files.createDirectories(path.getParent());
+            Files.write(path, content);
 
         } catch (IOException e) {
             System.err.println("[BlockSubstitutor] Failed to write config: " + e.getMessage());
@@ -135,9 +467,32 @@ public final class ConfigManager {
     // ---------------------------------------------------------
 
     /**
-     * Loads the default config from the mod resources.
+     * Returns a new, mutable copy of the default config from the mod
+     * resources.
      */
     public static BlockSubConfig loadDefaultsFromResource() {
+        return copyOf(getDefaults());
+    }
+
+    /**
+     * Returns the cached defaults, parsing the resource on first use.
+     * Shared: callers must not modify the result.
+     */
+    static BlockSubConfig getDefaults() {
+        BlockSubConfig defaults = DEFAULTS;
+        if (defaults == null) {
+            synchronized (ConfigManager.class) {
+                defaults = DEFAULTS;
+                if (defaults == null) {
+                    defaults = parseDefaultsResource();
+                    DEFAULTS = defaults;
+                }
+            }
+        }
+        return defaults;
+    }
+
+    private static BlockSubConfig parseDefaultsResource() {
 
         try (InputStream in = ConfigManager.class.getClassLoader()
                 .getResourceAsStream("blocksubstitutor-defaults.json")) {
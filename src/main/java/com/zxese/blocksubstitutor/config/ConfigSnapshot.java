@@ -0,0 +1,132 @@
+package com.zxese.blocksubstitutor.config;
+
+import com.zxese.blocksubstitutor.engine.CompiledMappings;
+
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ConfigSnapshot
+ *
+ * One published config state: the config values together with the
+ * lookup table compiled from its mappings. ConfigManager swaps whole
+ * snapshots atomically, so a reader that takes one snapshot sees
+ * settings and mappings from the same version, even while a reload or
+ * an editor save is in progress.
+ *
+ * The config held here is private to the snapshot and never modified
+ * after publication. The lookup table is compiled on first use, since
+ * mods may still be registering blocks when the first snapshot is made.
+ *
+ * Dimensions with a DimensionProfile get their own table, compiled once
+ * per dimension and cached here. Dimensions without one, and profiles
+ * that only inherit, share the global table; disabled dimensions get
+ * CompiledMappings.EMPTY.
+ */
+public final class ConfigSnapshot {
+
+    private final BlockSubConfig config;
+
+    private volatile CompiledMappings compiledMappings;
+
+    /** Lookup table per dimension, filled on first use. */
+    private final Map<RegistryKey<World>, CompiledMappings> dimensionMappings;
+
+    /**
+     * Creates a snapshot. When reused is not null, its lookup tables are
+     * shared; the caller guarantees they were compiled from the same
+     * mappings, rules and profiles.
+     */
+    ConfigSnapshot(BlockSubConfig config, ConfigSnapshot reused) {
+        this.config = config;
+
+        if (reused == null) {
+            this.dimensionMappings = new ConcurrentHashMap<>();
+        } else {
+            this.compiledMappings = reused.compiledMappings;
+            this.dimensionMappings = reused.dimensionMappings;
+        }
+    }
+
+    public BlockSubConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the lookup table for this snapshot's global mappings,
+     * compiling it on first use.
+     */
+    public CompiledMappings getCompiledMappings() {
+        CompiledMappings compiled = compiledMappings;
+        if (compiled == null) {
+            compiled = compile();
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the lookup table for a dimension, compiling it on first use.
+     * Called once per chunk, so the common case is one map read.
+     */
+    public CompiledMappings getCompiledMappings(RegistryKey<World> dimension) {
+        if (config.getDimensionProfiles().isEmpty()) {
+            return getCompiledMappings();
+        }
+
+        CompiledMappings compiled = dimensionMappings.get(dimension);
+        if (compiled == null) {
+            compiled = dimensionMappings.computeIfAbsent(dimension, this::compileFor);
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles the table of every dimension that has a profile, so the
+     * first chunk of a dimension does not pay for it.
+     */
+    void compileProfiles() {
+        for (String dimensionId : config.getDimensionProfiles().keySet()) {
+            Identifier id = Identifier.tryParse(dimensionId.trim());
+            if (id == null) {
+                System.err.println("[BlockSubstitutor] Invalid dimension ID '" + dimensionId + "' (profile ignored)");
+                continue;
+            }
+            getCompiledMappings(RegistryKey.of(RegistryKeys.WORLD, id));
+        }
+    }
+
+    /**
+     * Returns true once the lookup table has been compiled.
+     */
+    boolean isCompiled() {
+        return compiledMappings != null;
+    }
+
+    private CompiledMappings compileFor(RegistryKey<World> dimension) {
+        DimensionProfile profile = config.getDimensionProfiles().get(dimension.getValue().toString());
+
+        if (profile == null || profile.isSameAsGlobal()) {
+            return getCompiledMappings();
+        }
+        if (!profile.isEnabled()) {
+            return CompiledMappings.EMPTY;
+        }
+
+        return CompiledMappings.compile(
+                profile.resolveMappings(config.getBlockMappings()),
+                config.getBlockEntityRules()
+        );
+    }
+
+    private synchronized CompiledMappings compile() {
+        if (compiledMappings == null) {
+            compiledMappings = CompiledMappings.compile(config.getBlockMappings(), config.getBlockEntityRules());
+        }
+        return compiledMappings;
+    }
+}
@@ -0,0 +1,116 @@
+package com.zxese.blocksubstitutor.config;
+
+import java.io.IOException;
+
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConfigWatcher
+ *
+ * Optional background watch on config/blocksubstitutor.json (enabled with
+ * watchConfigFile). When the file changes, ConfigManager.reload() rebuilds
+ * the snapshot, including the compiled mappings, on the watcher thread
+ * and swaps it in; chunk processing never waits for it.
+ *
+ * Bursts of change events (editors often write a file in several steps)
+ * are collapsed into one reload after a short quiet period.
+ */
+public final class ConfigWatcher {
+
+    private static final long QUIET_PERIOD_MILLIS = 500L;
+
+    private static WatchService watchService;
+    private static Thread thread;
+
+    private ConfigWatcher() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Starts watching the config directory; does nothing if already running.
+     */
+    public static synchronized void start(Path configDirectory) {
+        if (thread != null) {
+            return;
+        }
+
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            configDirectory.register(
+                    service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            watchService = service;
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Cannot watch config directory: " + e.getMessage());
+            return;
+        }
+
+        WatchService service = watchService;
+        thread = new Thread(() -> watch(service), "BlockSubstitutor-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Closing only wakes the watcher thread; nothing to recover
+        }
+        thread.interrupt();
+        thread = null;
+        watchService = null;
+    }
+
+    private static void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = drain(key);
+
+                // Wait until the file stops changing
+                WatchKey next;
+                while ((next = service.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next);
+                }
+
+                if (changed) {
+                    ConfigManager.reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Consumes a key's events; returns true if the config file was among them.
+     */
+    private static boolean drain(WatchKey key) {
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (context instanceof Path && ((Path) context).getFileName().toString().equals(ConfigManager.CONFIG_FILE_NAME)) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+        return changed;
+    }
+}
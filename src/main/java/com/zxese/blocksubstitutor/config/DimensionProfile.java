@@ -0,0 +1,154 @@
+package com.zxese.blocksubstitutor.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * DimensionProfile
+ *
+ * Mapping overrides for one dimension, stored in
+ * BlockSubConfig.dimensionProfiles under the dimension ID
+ * (e.g. "minecraft:the_nether"):
+ *
+ *   enabled       - false turns substitution off in the dimension
+ *   inherit       - start from the global blockMappings (default) or
+ *                   from nothing
+ *   blockMappings - added on top; an empty replacement removes an
+ *                   inherited mapping. Keys match inherited ones with or
+ *                   without the minecraft: namespace
+ *
+ * Dimensions without a profile use the global mappings. Each profile is
+ * compiled into its own lookup table (see ConfigSnapshot).
+ */
+public final class DimensionProfile {
+
+    private boolean enabled;
+    private boolean inherit;
+    private Map<String, String> blockMappings;
+
+    /**
+     * Default constructor for Gson.
+     */
+    public DimensionProfile() {
+        this.enabled = true;
+        this.inherit = true;
+        this.blockMappings = new LinkedHashMap<>();
+    }
+
+    // ---------------------------------------------------------
+    // Getters
+    // ---------------------------------------------------------
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isInherit() {
+        return inherit;
+    }
+
+    public Map<String, String> getBlockMappings() {
+        return blockMappings == null ? Map.of() : Collections.unmodifiableMap(blockMappings);
+    }
+
+    // ---------------------------------------------------------
+    // Resolution
+    // ---------------------------------------------------------
+
+    /**
+     * Returns true if this profile maps exactly what the global table
+     * maps, so the global lookup table can be shared.
+     */
+    public boolean isSameAsGlobal() {
+        return enabled && inherit && getBlockMappings().isEmpty();
+    }
+
+    /**
+     * Returns the mappings that apply in this dimension, given the global
+     * ones. Empty when the profile is disabled.
+     *
+     * Keys are compared in canonical form (MappingRules.canonicalKey), so
+     * "stone" overrides or removes an inherited "minecraft:stone".
+     */
+    public Map<String, String> resolveMappings(Map<String, String> globalMappings) {
+        if (!enabled) {
+            return Map.of();
+        }
+
+        Map<String, String> resolved = inherit ? new LinkedHashMap<>(globalMappings) : new LinkedHashMap<>();
+        Map<String, String> profileMappings = getBlockMappings();
+
+        if (!resolved.isEmpty() && !profileMappings.isEmpty()) {
+            Set<String> overridden = new HashSet<>();
+            for (String key : profileMappings.keySet()) {
+                overridden.add(MappingRules.canonicalKey(key));
+            }
+            resolved.keySet().removeIf(key -> overridden.contains(MappingRules.canonicalKey(key)));
+        }
+
+        for (Map.Entry<String, String> entry : profileMappings.entrySet()) {
+            if (entry.getValue() != null && !entry.getValue().trim().isEmpty()) {
+                resolved.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return resolved;
+    }
+
+    /**
+     * Fixes fields Gson left null. Empty replacements are kept: they
+     * remove inherited mappings. Of several keys with the same canonical
+     * form, only the last one is kept, as it would win when resolved.
+     */
+    void repair() {
+        if (blockMappings == null) {
+            blockMappings = new LinkedHashMap<>();
+        }
+        blockMappings.entrySet().removeIf(entry ->
+                entry.getKey() == null ||
+                entry.getKey().trim().isEmpty() ||
+                entry.getValue() == null
+        );
+
+        Map<String, String> lastKeys = new HashMap<>();
+        for (String key : blockMappings.keySet()) {
+            lastKeys.put(MappingRules.canonicalKey(key), key);
+        }
+        if (lastKeys.size() < blockMappings.size()) {
+            blockMappings.keySet().removeIf(key -> !key.equals(lastKeys.get(MappingRules.canonicalKey(key))));
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Utility Overrides
+    // ---------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return "DimensionProfile{" +
+                "enabled=" + enabled +
+                ", inherit=" + inherit +
+                ", blockMappings=" + blockMappings +
+                "}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DimensionProfile)) return false;
+        DimensionProfile that = (DimensionProfile) o;
+        return enabled == that.enabled &&
+                inherit == that.inherit &&
+                Objects.equals(blockMappings, that.blockMappings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enabled, inherit, blockMappings);
+    }
+}
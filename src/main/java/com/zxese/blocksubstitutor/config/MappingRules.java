@@ -0,0 +1,399 @@
+package com.zxese.blocksubstitutor.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * MappingRules
+ *
+ * Parsed form of the blockMappings keys. A key can be:
+ *
+ *   minecraft:crafter            exact block ID
+ *   minecraft:crafter[crafting=true]
+ *                                block state: matches only states with these properties
+ *   minecraft:*copper_door       glob; '*' in the target repeats the matched text
+ *   minecraft:pale_oak_(.*)      regex (any of ( [ | + ? \ ^ $ or .*); $1.. in the target
+ *   #minecraft:doors             block tag (resolved against the registry by CompiledMappings)
+ *
+ * Any target may carry explicit properties, e.g. "minecraft:dropper[facing=up]";
+ * they override the properties copied from the source. A "[" with "="
+ * inside after a plain ID makes a block state key, not a regex.
+ *
+ * Bare IDs and globs default to the minecraft: namespace. Precedence is
+ * block state > exact > glob/regex > tag; among block state keys of one
+ * block the one with more properties wins, among patterns of the same
+ * kind the longer key wins, then the alphabetically first.
+ *
+ * Name resolution needs no game registries, so the offline converter uses
+ * it directly. Results are cached per name; instances are thread-safe.
+ */
+public final class MappingRules {
+
+    /** Cached "no mapping" result (ConcurrentHashMap has no null values). */
+    private static final String NONE = "";
+
+    private final Map<String, String> exact = new HashMap<>();
+    private final List<PatternRule> patterns = new ArrayList<>();
+    private final List<TagRule> tags = new ArrayList<>();
+    private final List<StateRule> states = new ArrayList<>();
+    private final Map<String, List<StateRule>> statesBySource = new HashMap<>();
+
+    private final Map<String, String> resolved = new ConcurrentHashMap<>();
+
+    private MappingRules() {
+    }
+
+    /**
+     * Parses config mappings. Invalid patterns are reported and skipped.
+     */
+    public static MappingRules parse(Map<String, String> mappings) {
+        MappingRules rules = new MappingRules();
+
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            String key = entry.getKey().trim();
+            String target = normalize(entry.getValue().trim());
+
+            if (key.startsWith("#")) {
+                rules.tags.add(new TagRule(normalize(key.substring(1)), target));
+            } else if (isStateKey(key)) {
+                rules.addState(key, target);
+            } else if (isRegex(key)) {
+                rules.addPattern(key, key, target);
+            } else if (key.contains("*")) {
+                rules.addPattern(key, globToRegex(normalize(key)), globTargetToReplacement(target));
+            } else {
+                rules.exact.put(normalize(key), target);
+            }
+        }
+
+        Comparator<String> specificity = Comparator.comparingInt(String::length).reversed()
+                .thenComparing(Comparator.naturalOrder());
+        rules.patterns.sort(Comparator.comparing(rule -> rule.key, specificity));
+        rules.tags.sort(Comparator.comparing(rule -> rule.tagId, specificity));
+
+        Comparator<StateRule> mostProperties = Comparator.<StateRule>comparingInt(rule -> rule.properties.size())
+                .reversed()
+                .thenComparing(rule -> rule.key);
+        rules.states.sort(mostProperties);
+        for (StateRule rule : rules.states) {
+            rules.statesBySource.computeIfAbsent(rule.sourceId, id -> new ArrayList<>()).add(rule);
+        }
+
+        return rules;
+    }
+
+    // ---------------------------------------------------------
+    // Resolution
+    // ---------------------------------------------------------
+
+    /**
+     * Returns the replacement ID for a block ID from exact and pattern
+     * rules, or null when none matches. Tags are not considered.
+     */
+    public String resolveByName(String blockId) {
+        String result = resolved.get(blockId);
+        if (result == null) {
+            result = resolveUncached(blockId);
+            resolved.put(blockId, result == null ? NONE : result);
+            return result;
+        }
+        return result == NONE ? null : result;
+    }
+
+    private String resolveUncached(String blockId) {
+        String target = exact.get(blockId);
+        if (target != null) {
+            return target;
+        }
+
+        for (PatternRule rule : patterns) {
+            Matcher matcher = rule.pattern.matcher(blockId);
+            if (!matcher.matches()) {
+                continue;
+            }
+
+            try {
+                StringBuffer expanded = new StringBuffer();
+                matcher.appendReplacement(expanded, rule.replacement);
+                return expanded.toString();
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                System.err.println(
+                        "[BlockSubstitutor] Invalid replacement '" + rule.replacement
+                                + "' for pattern " + rule.key + ": " + e.getMessage()
+                );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the replacement for a serialized block state (name plus
+     * property values as strings): the most specific matching block state
+     * rule, else resolveByName(). Null when nothing matches.
+     */
+    public String resolveState(String blockId, Map<String, String> properties) {
+        List<StateRule> candidates = statesBySource.get(blockId);
+
+        if (candidates != null) {
+            for (StateRule rule : candidates) {
+                if (rule.matches(properties)) {
+                    return rule.target;
+                }
+            }
+        }
+
+        return resolveByName(blockId);
+    }
+
+    /**
+     * Returns true if block state rules exist for this block, so its
+     * properties are needed to resolve it.
+     */
+    public boolean hasStateRules(String blockId) {
+        return statesBySource.containsKey(blockId);
+    }
+
+    public List<TagRule> getTagRules() {
+        return Collections.unmodifiableList(tags);
+    }
+
+    /** Block state rules, most properties first. */
+    public List<StateRule> getStateRules() {
+        return Collections.unmodifiableList(states);
+    }
+
+    public boolean hasPatterns() {
+        return !patterns.isEmpty() || !tags.isEmpty();
+    }
+
+    // ---------------------------------------------------------
+    // Block State Strings
+    // ---------------------------------------------------------
+
+    /**
+     * Block ID of a block state string: "dropper[facing=up]" -> "minecraft:dropper".
+     */
+    public static String blockIdOf(String blockState) {
+        int open = blockState.indexOf('[');
+        return normalize(open < 0 ? blockState : blockState.substring(0, open));
+    }
+
+    /**
+     * Properties of a block state string, in order; empty without a
+     * property list. Malformed pairs are left out.
+     */
+    public static Map<String, String> propertiesOf(String blockState) {
+        int open = blockState.indexOf('[');
+        if (open < 0 || !blockState.endsWith("]")) {
+            return Map.of();
+        }
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String pair : blockState.substring(open + 1, blockState.length() - 1).split(",")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                properties.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * True for "id[name=value,...]" with a plain ID: a block state key
+     * rather than a regex.
+     */
+    public static boolean isStateKey(String key) {
+        int open = key.indexOf('[');
+        if (open <= 0 || !key.endsWith("]") || key.indexOf('=', open) < 0) {
+            return false;
+        }
+
+        String id = key.substring(0, open);
+        return !id.contains("*") && !isRegex(id);
+    }
+
+    /**
+     * The key as parse() matches it: trimmed, with the minecraft:
+     * namespace added to block and tag IDs. Keys with the same canonical
+     * form ("stone", "minecraft:stone") are the same rule.
+     */
+    public static String canonicalKey(String key) {
+        String trimmed = key.trim();
+
+        if (trimmed.startsWith("#")) {
+            return "#" + normalize(trimmed.substring(1));
+        }
+        if (isStateKey(trimmed)) {
+            return blockIdOf(trimmed) + trimmed.substring(trimmed.indexOf('['));
+        }
+        return isRegex(trimmed) ? trimmed : normalize(trimmed);
+    }
+
+    // ---------------------------------------------------------
+    // Parsing Helpers
+    // ---------------------------------------------------------
+
+    private void addState(String key, String target) {
+        Map<String, String> properties = propertiesOf(key);
+        int pairs = key.substring(key.indexOf('[') + 1, key.length() - 1).split(",").length;
+
+        if (properties.size() != pairs) {
+            System.err.println("[BlockSubstitutor] Invalid block state '" + key + "' (mapping ignored)");
+            return;
+        }
+
+        String sourceId = blockIdOf(key);
+        states.add(new StateRule(sourceId + key.substring(key.indexOf('[')), sourceId, properties, target));
+    }
+
+    private void addPattern(String key, String regex, String replacement) {
+        try {
+            patterns.add(new PatternRule(key, Pattern.compile(regex), replacement));
+        } catch (PatternSyntaxException e) {
+            System.err.println("[BlockSubstitutor] Invalid pattern '" + key + "' (mapping ignored): " + e.getDescription());
+        }
+    }
+
+    private static boolean isRegex(String key) {
+        if (key.contains(".*")) {
+            return true;
+        }
+        for (char c : new char[]{'(', '[', '|', '+', '?', '\\', '^', '$'}) {
+            if (key.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Adds the minecraft: namespace to bare IDs. */
+    private static String normalize(String id) {
+        return id.contains(":") ? id : "minecraft:" + id;
+    }
+
+    /** "minecraft:*_door" -> "\Qminecraft:\E(.*)\Q_door\E" */
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int star;
+
+        while ((star = glob.indexOf('*', start)) >= 0) {
+            if (star > start) {
+                regex.append(Pattern.quote(glob.substring(start, star)));
+            }
+            regex.append("(.*)");
+            start = star + 1;
+        }
+        if (start < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+
+        return regex.toString();
+    }
+
+    /** "minecraft:*_planks" -> "minecraft:$1_planks" */
+    private static String globTargetToReplacement(String target) {
+        String[] parts = target.split("\\*", -1);
+        StringBuilder replacement = new StringBuilder(Matcher.quoteReplacement(parts[0]));
+
+        for (int i = 1; i < parts.length; i++) {
+            replacement.append('$').append(i).append(Matcher.quoteReplacement(parts[i]));
+        }
+
+        return replacement.toString();
+    }
+
+    // ---------------------------------------------------------
+    // Rules
+    // ---------------------------------------------------------
+
+    private static final class PatternRule {
+
+        private final String key;
+        private final Pattern pattern;
+        private final String replacement;
+
+        private PatternRule(String key, Pattern pattern, String replacement) {
+            this.key = key;
+            this.pattern = pattern;
+            this.replacement = replacement;
+        }
+    }
+
+    /**
+     * An "id[name=value,...]" source with its replacement. Matches every
+     * state of the block that has all of the listed property values.
+     */
+    public static final class StateRule {
+
+        private final String key;
+        private final String sourceId;
+        private final Map<String, String> properties;
+        private final String target;
+
+        private StateRule(String key, String sourceId, Map<String, String> properties, String target) {
+            this.key = key;
+            this.sourceId = sourceId;
+            this.properties = properties;
+            this.target = target;
+        }
+
+        private boolean matches(Map<String, String> stateProperties) {
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                if (!property.getValue().equals(stateProperties.get(property.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** The key with its namespace, e.g. "minecraft:crafter[crafting=true]". */
+        public String getKey() {
+            return key;
+        }
+
+        public String getSourceId() {
+            return sourceId;
+        }
+
+        public Map<String, String> getProperties() {
+            return Collections.unmodifiableMap(properties);
+        }
+
+        public String getTarget() {
+            return target;
+        }
+    }
+
+    /**
+     * A "#namespace:tag" source with its replacement block ID.
+     */
+    public static final class TagRule {
+
+        private final String tagId;
+        private final String target;
+
+        private TagRule(String tagId, String target) {
+            this.tagId = tagId;
+            this.target = target;
+        }
+
+        public String getTagId() {
+            return tagId;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+    }
+}
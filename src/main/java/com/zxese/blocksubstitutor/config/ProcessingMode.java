@@ -0,0 +1,28 @@
+package com.zxese.blocksubstitutor.config;
+
+/**
+ * ProcessingMode
+ *
+ * Controls where and when loaded chunks are scanned and substituted.
+ */
+public enum ProcessingMode {
+
+    /**
+     * Scans and writes inside the chunk-load callback on the server thread.
+     */
+    IMMEDIATE,
+
+    /**
+     * Queues loaded chunks and scans and writes them on the server thread
+     * at the end of each tick, within tickBudgetMicros.
+     */
+    SCHEDULED,
+
+    /**
+     * Queues loaded chunks; each tick, snapshots the relevant section
+     * palettes of queued chunks, scans the snapshots on a background
+     * executor, and applies the resulting writes on the server thread
+     * within tickBudgetMicros.
+     */
+    ASYNC
+}
@@ -0,0 +1,15 @@
+package com.zxese.blocksubstitutor.config;
+
+/**
+ * ReplacementLogFormat
+ *
+ * Where replacement summaries go when logReplacements is enabled.
+ */
+public enum ReplacementLogFormat {
+
+    /** One console line per dimension per logging window. */
+    TEXT,
+
+    /** One compact JSON line per converted chunk in logs/blocksubstitutor-replacements.jsonl. */
+    JSON
+}
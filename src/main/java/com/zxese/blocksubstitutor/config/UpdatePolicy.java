@@ -0,0 +1,28 @@
+package com.zxese.blocksubstitutor.config;
+
+/**
+ * UpdatePolicy
+ *
+ * Controls how replacement blocks are written into a chunk.
+ */
+public enum UpdatePolicy {
+
+    /**
+     * Writes straight into the chunk sections, one lock per section, then
+     * refreshes heightmaps and block entities once per chunk. No neighbor
+     * updates or block callbacks are triggered.
+     */
+    SECTION_BULK,
+
+    /**
+     * Uses World.setBlockState per block, notifying clients but not
+     * neighboring blocks.
+     */
+    NO_NEIGHBOR_UPDATE,
+
+    /**
+     * Uses World.setBlockState per block with full notification
+     * (Block.NOTIFY_ALL). Slowest; matches the original behavior.
+     */
+    NOTIFY_ALL
+}
@@ -0,0 +1,205 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.BlockEntityRule;
+
+import net.minecraft.nbt.AbstractNbtNumber;
+import net.minecraft.nbt.NbtByte;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtDouble;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtFloat;
+import net.minecraft.nbt.NbtInt;
+import net.minecraft.nbt.NbtLong;
+import net.minecraft.nbt.NbtShort;
+import net.minecraft.nbt.NbtString;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * BlockEntityTransform
+ *
+ * Compiled form of a BlockEntityRule. Paths are split and conversion
+ * types resolved once, so applying the transform to a block entity's
+ * NBT is a short list of in-place map operations.
+ */
+public final class BlockEntityTransform {
+
+    private final String[][] dropPaths;
+    private final String[][] renameFrom;
+    private final String[][] renameTo;
+    private final String[][] convertPaths;
+    private final List<Function<NbtElement, NbtElement>> converters;
+
+    /** Top-level keys to keep, or null to keep everything. */
+    private final Set<String> keepOnly;
+
+    private BlockEntityTransform(
+            String[][] dropPaths,
+            String[][] renameFrom,
+            String[][] renameTo,
+            String[][] convertPaths,
+            List<Function<NbtElement, NbtElement>> converters,
+            Set<String> keepOnly
+    ) {
+        this.dropPaths = dropPaths;
+        this.renameFrom = renameFrom;
+        this.renameTo = renameTo;
+        this.convertPaths = convertPaths;
+        this.converters = converters;
+        this.keepOnly = keepOnly;
+    }
+
+    /**
+     * Compiles a config rule. Unknown conversion types are reported and skipped.
+     */
+    public static BlockEntityTransform compile(String sourceId, BlockEntityRule rule) {
+
+        List<String[]> drop = new ArrayList<>();
+        for (String path : rule.getDrop()) {
+            drop.add(split(path));
+        }
+
+        List<String[]> renameFrom = new ArrayList<>();
+        List<String[]> renameTo = new ArrayList<>();
+        for (Map.Entry<String, String> entry : rule.getRename().entrySet()) {
+            renameFrom.add(split(entry.getKey()));
+            renameTo.add(split(entry.getValue()));
+        }
+
+        List<String[]> convertPaths = new ArrayList<>();
+        List<Function<NbtElement, NbtElement>> converters = new ArrayList<>();
+        for (Map.Entry<String, String> entry : rule.getConvert().entrySet()) {
+            Function<NbtElement, NbtElement> converter = converterFor(entry.getValue());
+            if (converter == null) {
+                System.err.println(
+                        "[BlockSubstitutor] Unknown NBT type '" + entry.getValue()
+                                + "' in block entity rule for " + sourceId + " (conversion ignored)"
+                );
+                continue;
+            }
+            convertPaths.add(split(entry.getKey()));
+            converters.add(converter);
+        }
+
+        return new BlockEntityTransform(
+                drop.toArray(new String[0][]),
+                renameFrom.toArray(new String[0][]),
+                renameTo.toArray(new String[0][]),
+                convertPaths.toArray(new String[0][]),
+                converters,
+                rule.getKeepOnly() == null ? null : new HashSet<>(rule.getKeepOnly())
+        );
+    }
+
+    /**
+     * Returns true if the rule removes all data, so the old block entity
+     * need not be serialized at all.
+     */
+    public boolean dropsEverything() {
+        return keepOnly != null && keepOnly.isEmpty();
+    }
+
+    // ---------------------------------------------------------
+    // Application
+    // ---------------------------------------------------------
+
+    /**
+     * Transforms the NBT in place.
+     */
+    public void apply(NbtCompound nbt) {
+
+        for (String[] path : dropPaths) {
+            NbtCompound parent = parentOf(nbt, path, false);
+            if (parent != null) {
+                parent.remove(path[path.length - 1]);
+            }
+        }
+
+        for (int i = 0; i < renameFrom.length; i++) {
+            NbtCompound from = parentOf(nbt, renameFrom[i], false);
+            NbtElement value = from == null ? null : from.get(last(renameFrom[i]));
+            if (value != null) {
+                from.remove(last(renameFrom[i]));
+                parentOf(nbt, renameTo[i], true).put(last(renameTo[i]), value);
+            }
+        }
+
+        for (int i = 0; i < convertPaths.length; i++) {
+            NbtCompound parent = parentOf(nbt, convertPaths[i], false);
+            NbtElement value = parent == null ? null : parent.get(last(convertPaths[i]));
+            if (value != null) {
+                NbtElement converted = converters.get(i).apply(value);
+                if (converted != null) {
+                    parent.put(last(convertPaths[i]), converted);
+                }
+            }
+        }
+
+        if (keepOnly != null) {
+            nbt.getKeys().removeIf(key -> !keepOnly.contains(key));
+        }
+    }
+
+    private static NbtCompound parentOf(NbtCompound root, String[] path, boolean create) {
+        NbtCompound current = root;
+
+        for (int i = 0; i < path.length - 1; i++) {
+            NbtElement child = current.get(path[i]);
+            if (child instanceof NbtCompound) {
+                current = (NbtCompound) child;
+            } else if (create) {
+                NbtCompound created = new NbtCompound();
+                current.put(path[i], created);
+                current = created;
+            } else {
+                return null;
+            }
+        }
+
+        return current;
+    }
+
+    private static String last(String[] path) {
+        return path[path.length - 1];
+    }
+
+    private static String[] split(String path) {
+        return path.trim().split("\\.");
+    }
+
+    // ---------------------------------------------------------
+    // Conversions
+    // ---------------------------------------------------------
+
+    private static Function<NbtElement, NbtElement> converterFor(String type) {
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "byte":
+                return numeric(number -> NbtByte.of(number.byteValue()));
+            case "short":
+                return numeric(number -> NbtShort.of(number.shortValue()));
+            case "int":
+                return numeric(number -> NbtInt.of(number.intValue()));
+            case "long":
+                return numeric(number -> NbtLong.of(number.longValue()));
+            case "float":
+                return numeric(number -> NbtFloat.of(number.floatValue()));
+            case "double":
+                return numeric(number -> NbtDouble.of(number.doubleValue()));
+            case "string":
+                return value -> NbtString.of(value.asString());
+            default:
+                return null;
+        }
+    }
+
+    /** Converts numeric tags; other tags are left as they are. */
+    private static Function<NbtElement, NbtElement> numeric(Function<AbstractNbtNumber, NbtElement> conversion) {
+        return value -> value instanceof AbstractNbtNumber ? conversion.apply((AbstractNbtNumber) value) : null;
+    }
+}
@@ -0,0 +1,336 @@
+package com.zxese.blocksubstitutor.engine;
+
+import net.minecraft.block.BlockState;
+
+import net.minecraft.util.math.BlockPos;
+
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ChunkScanner
+ *
+ * Read-only analysis of chunk sections against a compiled mapping table.
+ * Produces the list of writes without touching the world.
+ *
+ * Mapped blocks with a block entity can be found through the chunk's
+ * block entity index (findBlockEntitySources) instead of the block data.
+ * When that index is passed to a scan, only sections whose palette holds
+ * a mapped block without a block entity are scanned per block, so a chunk
+ * where only block entity mappings apply costs one lookup per block
+ * entity rather than a pass over all of its blocks.
+ *
+ * The index only holds blocks that have a block entity. A block of a
+ * block entity type can lack one, for example when it was placed by older
+ * world generation or written by an external tool; such a block is not
+ * in the index. When a section's palette holds a mapped block entity
+ * source but the index found none in that section, the chunk falls back
+ * to the full scan. A section where only some of those blocks lack their
+ * block entity is not detected without reading its block data; run the
+ * offline converter or substituteOnDeserialize, which work on the
+ * palette, for worlds where that is expected.
+ */
+public final class ChunkScanner {
+
+    private ChunkScanner() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Scans every section of a chunk and appends a write for each mapped
+     * block to the batch.
+     *
+     * Sections are checked through their palette first; empty sections and
+     * sections without a mapped state are skipped without reading any
+     * block data.
+     */
+    public static void scan(ChunkSection[] sections, CompiledMappings mappings, ChunkWriteBatch batch) {
+        scan(sections, null, mappings, batch);
+    }
+
+    /**
+     * Like scan(), with the block entity sources already found through
+     * findBlockEntitySources (null = scan for them too). The result is the
+     * same as a full scan, in the same order.
+     */
+    public static void scan(
+            ChunkSection[] sections,
+            ChunkWriteBatch blockEntitySources,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch
+    ) {
+        int next = 0;
+
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            ChunkSection section = sections[sectionIndex];
+            boolean scanned = needsScan(section, mappings, blockEntitySources != null);
+
+            if (scanned) {
+                scanContainer(sectionIndex, section.getBlockStateContainer(), mappings, batch);
+            }
+            next = copySection(blockEntitySources, next, sectionIndex, scanned ? null : batch);
+        }
+    }
+
+    /**
+     * Like scan(), but splits the chunk across a fork-join pool, one task
+     * per non-empty section, once the chunk has at least minSections
+     * non-empty sections. Each task fills its own batch; the batches are
+     * merged in section order, so the result matches a sequential scan.
+     * The sections must not be written while this runs.
+     */
+    public static void scanParallel(
+            ChunkSection[] sections,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch,
+            ForkJoinPool pool,
+            int minSections
+    ) {
+        scanParallel(sections, null, mappings, batch, pool, minSections);
+    }
+
+    /**
+     * Like scanParallel(), with the block entity sources already found
+     * through findBlockEntitySources (null = scan for them too).
+     */
+    @SuppressWarnings("unchecked")
+    public static void scanParallel(
+            ChunkSection[] sections,
+            ChunkWriteBatch blockEntitySources,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch,
+            ForkJoinPool pool,
+            int minSections
+    ) {
+        boolean indexed = blockEntitySources != null;
+        if (indexed && !mappings.hasPositionSources()) {
+            batch.addAll(blockEntitySources);
+            return;
+        }
+
+        int nonEmpty = 0;
+        for (ChunkSection section : sections) {
+            if (!section.isEmpty()) {
+                nonEmpty++;
+            }
+        }
+
+        if (nonEmpty < minSections) {
+            scan(sections, blockEntitySources, mappings, batch);
+            return;
+        }
+
+        ForkJoinTask<ChunkWriteBatch>[] tasks = new ForkJoinTask[sections.length];
+
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            ChunkSection section = sections[sectionIndex];
+            if (section.isEmpty()) {
+                continue;
+            }
+
+            int index = sectionIndex;
+            tasks[sectionIndex] = pool.submit(() -> {
+                ChunkWriteBatch sectionBatch = new ChunkWriteBatch();
+                if (needsScan(section, mappings, indexed)) {
+                    scanContainer(index, section.getBlockStateContainer(), mappings, sectionBatch);
+                }
+                return sectionBatch;
+            });
+        }
+
+        int next = 0;
+
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            ChunkWriteBatch sectionBatch = tasks[sectionIndex] == null ? null : tasks[sectionIndex].join();
+            boolean scanned = sectionBatch != null && !sectionBatch.isEmpty();
+
+            if (scanned) {
+                batch.addAll(sectionBatch);
+            }
+            next = copySection(blockEntitySources, next, sectionIndex, scanned ? null : batch);
+        }
+    }
+
+    /**
+     * Scans block state containers (snapshot copies, null = skip) and
+     * merges in the block entity sources of the skipped sections, in
+     * section order. Used for sections copied off the server thread.
+     */
+    public static void scanContainers(
+            PalettedContainer<BlockState>[] containers,
+            ChunkWriteBatch blockEntitySources,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch
+    ) {
+        int next = 0;
+
+        for (int sectionIndex = 0; sectionIndex < containers.length; sectionIndex++) {
+            boolean scanned = containers[sectionIndex] != null;
+
+            if (scanned) {
+                scanContainer(sectionIndex, containers[sectionIndex], mappings, batch);
+            }
+            next = copySection(blockEntitySources, next, sectionIndex, scanned ? null : batch);
+        }
+    }
+
+    /**
+     * Scans a single section, appending a write for each mapped block.
+     */
+    public static void scanSection(
+            int sectionIndex,
+            ChunkSection section,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch
+    ) {
+        if (needsScan(section, mappings)) {
+            scanContainer(sectionIndex, section.getBlockStateContainer(), mappings, batch);
+        }
+    }
+
+    /**
+     * Palette check: true if the section is non-empty and its palette holds
+     * at least one mapped state.
+     */
+    public static boolean needsScan(ChunkSection section, CompiledMappings mappings) {
+        return !section.isEmpty() && section.getBlockStateContainer().hasAny(mappings::isSource);
+    }
+
+    /**
+     * Palette check for scans that take block entity sources from the
+     * index: true if the section holds a mapped state without a block
+     * entity. Free when every mapped source has a block entity.
+     */
+    public static boolean needsPositionScan(ChunkSection section, CompiledMappings mappings) {
+        return mappings.hasPositionSources()
+                && !section.isEmpty()
+                && section.getBlockStateContainer().hasAny(mappings::isPositionSource);
+    }
+
+    /**
+     * needsScan() or needsPositionScan(), depending on whether block entity
+     * sources come from the index.
+     */
+    public static boolean needsScan(ChunkSection section, CompiledMappings mappings, boolean indexed) {
+        return indexed ? needsPositionScan(section, mappings) : needsScan(section, mappings);
+    }
+
+    /**
+     * Scans a block state container (a live section or a snapshot copy),
+     * appending a write for each mapped block.
+     */
+    public static void scanContainer(
+            int sectionIndex,
+            PalettedContainer<BlockState> container,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch
+    ) {
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+
+                    BlockState originalState = container.get(x, y, z);
+
+                    BlockState finalState = mappings.getTarget(originalState);
+                    if (finalState != null) {
+                        batch.add(sectionIndex, x, y, z, originalState, finalState);
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Block Entity Index
+    // ---------------------------------------------------------
+
+    /**
+     * Finds every mapped block that has a block entity by walking the
+     * chunk's block entity positions (loaded and still pending) instead of
+     * its block data. Returns them as a batch in scan order, or null when
+     * no mapping has a block entity source or a section holds mapped block
+     * entity sources the index does not list (the caller then scans every
+     * section). Reads the live chunk, so it must run on the server thread.
+     */
+    public static ChunkWriteBatch findBlockEntitySources(WorldChunk chunk, CompiledMappings mappings) {
+        if (!mappings.hasBlockEntitySources()) {
+            return null;
+        }
+
+        ChunkSection[] sections = chunk.getSectionArray();
+        Set<BlockPos> positions = chunk.getBlockEntityPositions();
+
+        // Packed as in ChunkWriteBatch, so sorting gives scan order
+        int[] packed = new int[positions.size()];
+        int count = 0;
+        boolean[] indexedSections = new boolean[sections.length];
+
+        for (BlockPos pos : positions) {
+            int sectionIndex = chunk.getSectionIndex(pos.getY());
+            if (sectionIndex < 0 || sectionIndex >= sections.length) {
+                continue;
+            }
+
+            int x = pos.getX() & 15;
+            int y = pos.getY() & 15;
+            int z = pos.getZ() & 15;
+
+            if (mappings.isBlockEntitySource(sections[sectionIndex].getBlockState(x, y, z))) {
+                packed[count++] = sectionIndex << 12 | y << 8 | z << 4 | x;
+                indexedSections[sectionIndex] = true;
+            }
+        }
+
+        // Mapped block entity blocks without a block entity are only found by a scan
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            ChunkSection section = sections[sectionIndex];
+            if (!indexedSections[sectionIndex]
+                    && !section.isEmpty()
+                    && section.getBlockStateContainer().hasAny(mappings::isBlockEntitySource)) {
+                return null;
+            }
+        }
+
+        Arrays.sort(packed, 0, count);
+
+        ChunkWriteBatch batch = new ChunkWriteBatch();
+
+        for (int i = 0; i < count; i++) {
+            int sectionIndex = packed[i] >>> 12;
+            int x = packed[i] & 15;
+            int y = packed[i] >>> 8 & 15;
+            int z = packed[i] >>> 4 & 15;
+
+            BlockState original = sections[sectionIndex].getBlockState(x, y, z);
+            batch.add(sectionIndex, x, y, z, original, mappings.getTarget(original));
+        }
+
+        return batch;
+    }
+
+    /**
+     * Steps past the block entity sources of one section, copying them
+     * into the batch unless it is null (the section was scanned and has
+     * them already). Returns the index of the first entry after them.
+     */
+    private static int copySection(ChunkWriteBatch sources, int from, int sectionIndex, ChunkWriteBatch batch) {
+        if (sources == null) {
+            return from;
+        }
+
+        int next = from;
+        while (next < sources.size() && sources.getSectionIndex(next) == sectionIndex) {
+            if (batch != null) {
+                batch.add(sources, next);
+            }
+            next++;
+        }
+        return next;
+    }
+}
@@ -0,0 +1,89 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.BlockSubConfig;
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.metrics.ReplacementLog;
+import com.zxese.blocksubstitutor.metrics.SubstitutionMetrics;
+
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * ChunkSubstitution
+ *
+ * Final, server-thread step shared by every processing mode: applies a
+ * scanned write batch to its chunk, records the chunk as converted,
+ * updates the substitution metrics and queues the replacement summary.
+ *
+ * With dryRun set nothing is written and the chunk is not marked, but
+ * the metrics, the replacement log and the DryRunAudit are fed as if it
+ * had been, so /blocksub stats and the audit report show what would
+ * change. Without a marker a chunk is scanned again on every load; only
+ * its first scan is counted.
+ */
+public final class ChunkSubstitution {
+
+    private ChunkSubstitution() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Applies the batch, marks the chunk as converted for the given mappings
+     * and queues the summary for the background ReplacementLog if enabled.
+     * Must run on the server thread.
+     */
+    public static void complete(
+            ServerWorld world,
+            WorldChunk chunk,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch
+    ) {
+        BlockSubConfig config = ConfigManager.getConfig();
+
+        long start = System.nanoTime();
+        int blockEntities;
+
+        if (config.isDryRun()) {
+            if (DryRunAudit.isAudited(world, chunk.getPos())) {
+                SubstitutionMetrics.forWorld(world).recordSkipped();
+                return;
+            }
+            blockEntities = countBlockEntities(batch);
+        } else {
+            blockEntities = ChunkWriter.apply(world, chunk, mappings, batch, config.getUpdatePolicy());
+            if (SubstitutionMarkers.markDone(chunk, mappings.getFingerprint())) {
+                SubstitutionMetrics.forWorld(world).recordConverted();
+            }
+        }
+
+        ReplacementCounts replaced = batch.isEmpty() ? null : ReplacementCounts.of(mappings, batch);
+
+        if (config.isDryRun()) {
+            DryRunAudit.record(world, chunk.getPos(), batch, replaced, blockEntities);
+        }
+
+        if (replaced == null) {
+            return;
+        }
+
+        SubstitutionMetrics.recordWrite(world, replaced, blockEntities, System.nanoTime() - start);
+
+        if (config.isLogReplacements()) {
+            ReplacementLog.record(world.getRegistryKey(), chunk.getPos(), replaced);
+        }
+    }
+
+    /**
+     * Block entities a batch would migrate, for dry runs.
+     */
+    private static int countBlockEntities(ChunkWriteBatch batch) {
+        int count = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getOriginal(i).hasBlockEntity()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package com.zxese.blocksubstitutor.engine;
+
+import net.minecraft.block.BlockState;
+
+import java.util.Arrays;
+
+/**
+ * ChunkWriteBatch
+ *
+ * Growable list of pending block writes for a single chunk.
+ *
+ * Positions are packed as (sectionIndex << 12 | y << 8 | z << 4 | x) with
+ * section-local coordinates, and entries are kept in scan order, so all
+ * writes for one section are contiguous.
+ */
+public final class ChunkWriteBatch {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private BlockState[] originals = new BlockState[INITIAL_CAPACITY];
+    private BlockState[] targets = new BlockState[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(int sectionIndex, int x, int y, int z, BlockState original, BlockState target) {
+        if (size == positions.length) {
+            int capacity = size * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            originals = Arrays.copyOf(originals, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+
+        positions[size] = sectionIndex << 12 | y << 8 | z << 4 | x;
+        originals[size] = original;
+        targets[size] = target;
+        size++;
+    }
+
+    /**
+     * Appends every entry of another batch, in order.
+     */
+    public void addAll(ChunkWriteBatch other) {
+        if (size + other.size > positions.length) {
+            int capacity = Math.max(size * 2, size + other.size);
+            positions = Arrays.copyOf(positions, capacity);
+            originals = Arrays.copyOf(originals, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+
+        System.arraycopy(other.positions, 0, positions, size, other.size);
+        System.arraycopy(other.originals, 0, originals, size, other.size);
+        System.arraycopy(other.targets, 0, targets, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Appends entry i of another batch.
+     */
+    public void add(ChunkWriteBatch other, int i) {
+        add(
+                other.getSectionIndex(i),
+                other.getLocalX(i),
+                other.getLocalY(i),
+                other.getLocalZ(i),
+                other.getOriginal(i),
+                other.getTarget(i)
+        );
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(originals, 0, size, null);
+        Arrays.fill(targets, 0, size, null);
+        size = 0;
+    }
+
+    // ---------------------------------------------------------
+    // Entry Accessors
+    // ---------------------------------------------------------
+
+    public int getSectionIndex(int i) {
+        return positions[i] >>> 12;
+    }
+
+    public int getLocalX(int i) {
+        return positions[i] & 15;
+    }
+
+    public int getLocalY(int i) {
+        return positions[i] >>> 8 & 15;
+    }
+
+    public int getLocalZ(int i) {
+        return positions[i] >>> 4 & 15;
+    }
+
+    public BlockState getOriginal(int i) {
+        return originals[i];
+    }
+
+    public BlockState getTarget(int i) {
+        return targets[i];
+    }
+}
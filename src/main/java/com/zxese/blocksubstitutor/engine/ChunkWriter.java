@@ -0,0 +1,283 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.UpdatePolicy;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+
+import net.minecraft.nbt.NbtCompound;
+
+import net.minecraft.server.world.ServerChunkManager;
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * ChunkWriter
+ *
+ * Applies a ChunkWriteBatch to a loaded chunk using the configured
+ * UpdatePolicy. Block entity data is carried over to the replacement
+ * block entity in every mode, in three batched passes: capture (and
+ * transform) all old data, write all blocks, then load the data into the
+ * new block entities. Data is only serialized when the replacement has a
+ * block entity to receive it and the mapping's BlockEntityTransform does
+ * not drop it all.
+ */
+public final class ChunkWriter {
+
+    /** Flags used by UpdatePolicy.NO_NEIGHBOR_UPDATE. */
+    private static final int NO_NEIGHBOR_UPDATE_FLAGS = Block.NOTIFY_LISTENERS | Block.FORCE_STATE;
+
+    private ChunkWriter() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Writes every entry of the batch into the chunk. Returns the number
+     * of block entities whose data was migrated.
+     */
+    public static int apply(
+            ServerWorld world,
+            WorldChunk chunk,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch,
+            UpdatePolicy policy
+    ) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        return switch (policy) {
+            case NOTIFY_ALL -> applyThroughWorld(world, chunk, mappings, batch, Block.NOTIFY_ALL);
+            case NO_NEIGHBOR_UPDATE -> applyThroughWorld(world, chunk, mappings, batch, NO_NEIGHBOR_UPDATE_FLAGS);
+            default -> applyBulk(world, chunk, mappings, batch);
+        };
+    }
+
+    // ---------------------------------------------------------
+    // World Path
+    // ---------------------------------------------------------
+
+    /**
+     * Replaces blocks one at a time through World.setBlockState, which also
+     * removes the old block entities and creates the new ones.
+     */
+    private static int applyThroughWorld(
+            ServerWorld world,
+            WorldChunk chunk,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch,
+            int flags
+    ) {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        NbtCompound[] beData = captureBlockEntities(chunk, mappings, batch, pos, false);
+
+        for (int i = 0; i < batch.size(); i++) {
+            setPosition(chunk, batch, i, pos);
+            world.setBlockState(pos, batch.getTarget(i), flags);
+        }
+
+        return restoreBlockEntities(chunk, batch, beData, pos);
+    }
+
+    // ---------------------------------------------------------
+    // Bulk Section Path
+    // ---------------------------------------------------------
+
+    /**
+     * Writes straight into the chunk sections, locking each section once.
+     * Heightmaps are rebuilt once for the whole chunk, and block entities
+     * are migrated as one batch after all block writes.
+     */
+    private static int applyBulk(ServerWorld world, WorldChunk chunk, CompiledMappings mappings, ChunkWriteBatch batch) {
+
+        ServerChunkManager chunkManager = world.getChunkManager();
+        LightingProvider lighting = chunkManager.getLightingProvider();
+        ChunkSection[] sections = chunk.getSectionArray();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        // 1. Capture and detach old block entities before their blocks change
+        NbtCompound[] beData = captureBlockEntities(chunk, mappings, batch, pos, true);
+
+        // 2. Section writes, one lock per section
+        int currentIndex = -1;
+        ChunkSection section = null;
+        boolean wasEmpty = false;
+
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+
+                int sectionIndex = batch.getSectionIndex(i);
+
+                if (sectionIndex != currentIndex) {
+                    if (section != null) {
+                        finishSection(chunk, lighting, section, currentIndex, wasEmpty);
+                    }
+                    currentIndex = sectionIndex;
+                    section = sections[sectionIndex];
+                    wasEmpty = section.isEmpty();
+                    section.lock();
+                }
+
+                BlockState original = batch.getOriginal(i);
+                BlockState target = batch.getTarget(i);
+
+                section.setBlockState(batch.getLocalX(i), batch.getLocalY(i), batch.getLocalZ(i), target, false);
+
+                setPosition(chunk, batch, i, pos);
+
+                if (affectsLight(chunk, pos, original, target)) {
+                    lighting.checkBlock(pos);
+                }
+
+                chunkManager.markForUpdate(pos);
+            }
+        } finally {
+            if (section != null) {
+                finishSection(chunk, lighting, section, currentIndex, wasEmpty);
+            }
+        }
+
+        // 3. One heightmap refresh for the chunk
+        EnumSet<Heightmap.Type> heightmapTypes = EnumSet.noneOf(Heightmap.Type.class);
+        for (Map.Entry<Heightmap.Type, Heightmap> entry : chunk.getHeightmaps()) {
+            heightmapTypes.add(entry.getKey());
+        }
+        Heightmap.populateHeightmaps(chunk, heightmapTypes);
+
+        // 4. Block entity migration, batched after the block writes
+        int migrated = restoreBlockEntities(chunk, batch, beData, pos);
+
+        chunk.setNeedsSaving(true);
+        return migrated;
+    }
+
+    /**
+     * Serializes and transforms the data of every replaced block entity
+     * that has somewhere to go, optionally detaching the old block
+     * entities. Returns null when there is no data to restore.
+     */
+    private static NbtCompound[] captureBlockEntities(
+            WorldChunk chunk,
+            CompiledMappings mappings,
+            ChunkWriteBatch batch,
+            BlockPos.Mutable pos,
+            boolean detach
+    ) {
+        NbtCompound[] beData = null;
+
+        for (int i = 0; i < batch.size(); i++) {
+
+            BlockState original = batch.getOriginal(i);
+            if (!original.hasBlockEntity()) {
+                continue;
+            }
+
+            setPosition(chunk, batch, i, pos);
+            BlockEntity originalBe = chunk.getBlockEntity(pos);
+            if (originalBe == null) {
+                continue;
+            }
+
+            BlockEntityTransform transform = mappings.getBlockEntityTransform(original);
+            boolean keepData = batch.getTarget(i).hasBlockEntity()
+                    && (transform == null || !transform.dropsEverything());
+
+            if (keepData) {
+                NbtCompound nbt = originalBe.createNbt();
+                if (transform != null) {
+                    transform.apply(nbt);
+                }
+
+                if (beData == null) {
+                    beData = new NbtCompound[batch.size()];
+                }
+                beData[i] = nbt;
+            }
+
+            if (detach) {
+                chunk.removeBlockEntity(originalBe.getPos());
+            }
+        }
+
+        return beData;
+    }
+
+    /**
+     * Creates block entities for replacement blocks and loads the captured
+     * data into them. Returns the number of block entities migrated.
+     */
+    private static int restoreBlockEntities(
+            WorldChunk chunk,
+            ChunkWriteBatch batch,
+            NbtCompound[] beData,
+            BlockPos.Mutable pos
+    ) {
+        int migrated = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+
+            if (!batch.getTarget(i).hasBlockEntity()) {
+                continue;
+            }
+
+            setPosition(chunk, batch, i, pos);
+            BlockEntity newBe = chunk.getBlockEntity(pos.toImmutable(), WorldChunk.CreationType.IMMEDIATE);
+
+            if (newBe != null && beData != null && beData[i] != null) {
+                newBe.readNbt(beData[i]);
+                newBe.markDirty();
+                migrated++;
+            }
+        }
+
+        return migrated;
+    }
+
+    /**
+     * Releases a section lock and reports an empty/non-empty transition to the light engine.
+     */
+    private static void finishSection(
+            WorldChunk chunk,
+            LightingProvider lighting,
+            ChunkSection section,
+            int sectionIndex,
+            boolean wasEmpty
+    ) {
+        section.unlock();
+
+        boolean isEmpty = section.isEmpty();
+        if (wasEmpty != isEmpty) {
+            lighting.setSectionStatus(
+                    ChunkSectionPos.from(chunk.getPos(), chunk.sectionIndexToCoord(sectionIndex)),
+                    isEmpty
+            );
+        }
+    }
+
+    private static boolean affectsLight(WorldChunk chunk, BlockPos pos, BlockState original, BlockState target) {
+        return original.getLuminance() != target.getLuminance()
+                || original.getOpacity(chunk, pos) != target.getOpacity(chunk, pos)
+                || original.hasSidedTransparency()
+                || target.hasSidedTransparency();
+    }
+
+    private static void setPosition(WorldChunk chunk, ChunkWriteBatch batch, int i, BlockPos.Mutable pos) {
+        pos.set(
+                chunk.getPos().getStartX() + batch.getLocalX(i),
+                ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(batch.getSectionIndex(i))) + batch.getLocalY(i),
+                chunk.getPos().getStartZ() + batch.getLocalZ(i)
+        );
+    }
+}
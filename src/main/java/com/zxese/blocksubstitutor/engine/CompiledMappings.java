@@ -0,0 +1,732 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import com.zxese.blocksubstitutor.config.BlockEntityRule;
+import com.zxese.blocksubstitutor.config.MappingRules;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockEntityProvider;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.BlockEntityType;
+
+import net.minecraft.command.argument.BlockArgumentParser;
+
+import net.minecraft.nbt.NbtCompound;
+
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.entry.RegistryEntryList;
+import net.minecraft.registry.tag.TagKey;
+
+import net.minecraft.state.property.Property;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CompiledMappings
+ *
+ * Immutable lookup table compiled from the string block mappings in
+ * BlockSubConfig. The table is dense and indexed by raw block state ID
+ * (Block.getRawIdFromState), so resolving a replacement during a chunk
+ * scan is a single array read with no string work.
+ *
+ * Each slot holds the final replacement state for that source state,
+ * with shared properties already copied over, or null when the state
+ * is not mapped. Property copying uses one PropertyTransferPlan per
+ * source block, built once per compile and applied to all its states.
+ * Block entity rules are compiled alongside into a BlockEntityTransform
+ * per source state.
+ *
+ * Mappings are also classified by source: blocks with a block entity
+ * (vaults, trial spawners, crafters) are found through the chunk's block
+ * entity index, and only the other sources need the per-block scan (see
+ * ChunkScanner.findBlockEntitySources). The classification is taken from
+ * the finished table, so a source unmapped by a later rule does not count.
+ */
+public final class CompiledMappings {
+
+    /** Table with no mappings; used before the first compile. */
+    public static final CompiledMappings EMPTY =
+            new CompiledMappings(
+                    new BlockState[0],
+                    new int[0],
+                    new String[0],
+                    new BlockEntityTransform[0],
+                    new boolean[0],
+                    false,
+                    false,
+                    Collections.emptyMap(),
+                    Collections.emptyMap(),
+                    null,
+                    Collections.emptyMap(),
+                    0
+            );
+
+    /** Replacement state per raw source state ID (null = not mapped). */
+    private final BlockState[] targets;
+
+    /** Mapping ordinal per raw source state ID (-1 = not mapped). */
+    private final int[] ordinals;
+
+    /** Summary label ("old -> new") per mapping ordinal. */
+    private final String[] labels;
+
+    /** Block entity data transform per raw source state ID (null = copy as is). */
+    private final BlockEntityTransform[] transforms;
+
+    /** True per raw source state ID whose block has a block entity. */
+    private final boolean[] blockEntitySources;
+
+    /** True if any mapped source has a block entity. */
+    private final boolean hasBlockEntitySources;
+
+    /** True if any mapped source has no block entity and needs the per-block scan. */
+    private final boolean hasPositionSources;
+
+    /** Every resolved source block ID -> replacement block state, patterns expanded. */
+    private final Map<String, String> resolvedIds;
+
+    /** resolvedIds plus the sources of block state rules; for filtering by name. */
+    private final Map<String, String> sourceIds;
+
+    /** Parsed rules, for names the registry does not know (null in EMPTY). */
+    private final MappingRules rules;
+
+    /** Block entity transform per source block ID, registered or not. */
+    private final Map<String, BlockEntityTransform> transformsById;
+
+    /** Block entity type ID per replacement block ID; "" = no block entity. Filled lazily. */
+    private final Map<String, String> blockEntityTypeIds = new ConcurrentHashMap<>();
+
+    /** Hash of every source -> target state pair; identifies this mapping set. */
+    private final int fingerprint;
+
+    private CompiledMappings(
+            BlockState[] targets,
+            int[] ordinals,
+            String[] labels,
+            BlockEntityTransform[] transforms,
+            boolean[] blockEntitySources,
+            boolean hasBlockEntitySources,
+            boolean hasPositionSources,
+            Map<String, String> resolvedIds,
+            Map<String, String> sourceIds,
+            MappingRules rules,
+            Map<String, BlockEntityTransform> transformsById,
+            int fingerprint
+    ) {
+        this.targets = targets;
+        this.ordinals = ordinals;
+        this.labels = labels;
+        this.transforms = transforms;
+        this.blockEntitySources = blockEntitySources;
+        this.hasBlockEntitySources = hasBlockEntitySources;
+        this.hasPositionSources = hasPositionSources;
+        this.resolvedIds = resolvedIds;
+        this.sourceIds = sourceIds;
+        this.rules = rules;
+        this.transformsById = transformsById;
+        this.fingerprint = fingerprint;
+    }
+
+    // ---------------------------------------------------------
+    // Compilation
+    // ---------------------------------------------------------
+
+    /**
+     * Compiles the config mappings into a dense state table. Glob, regex
+     * and tag keys (see MappingRules) are expanded here against the block
+     * registry, so patterns cost nothing per block at runtime. Sources
+     * that are not registered and replacements that do not exist are
+     * skipped.
+     */
+    public static CompiledMappings compile(Map<String, String> mappings) {
+        return compile(mappings, Collections.emptyMap());
+    }
+
+    /**
+     * Compiles the config mappings together with the block entity rules,
+     * keyed by exact source block ID.
+     */
+    public static synchronized CompiledMappings compile(
+            Map<String, String> mappings,
+            Map<String, BlockEntityRule> blockEntityRules
+    ) {
+
+        if (mappings.isEmpty()) {
+            return EMPTY;
+        }
+
+        MappingRules rules = MappingRules.parse(mappings);
+
+        // Source block -> replacement; exact and pattern rules first, tags fill the gaps
+        Map<Block, String> resolved = new LinkedHashMap<>();
+
+        for (Block block : Registries.BLOCK) {
+            String target = rules.resolveByName(Registries.BLOCK.getId(block).toString());
+            if (target != null) {
+                resolved.put(block, target);
+            }
+        }
+
+        for (MappingRules.TagRule tag : rules.getTagRules()) {
+            Identifier tagId = Identifier.tryParse(tag.getTagId());
+            if (tagId == null) {
+                System.err.println("[BlockSubstitutor] Invalid block tag '#" + tag.getTagId() + "' (mapping ignored)");
+                continue;
+            }
+
+            Optional<RegistryEntryList.Named<Block>> entries =
+                    Registries.BLOCK.getEntryList(TagKey.of(RegistryKeys.BLOCK, tagId));
+            if (entries.isEmpty()) {
+                continue;
+            }
+
+            for (RegistryEntry<Block> entry : entries.get()) {
+                resolved.putIfAbsent(entry.value(), tag.getTarget());
+            }
+        }
+
+        TableBuilder table = new TableBuilder(Block.STATE_IDS.size());
+        Map<String, BlockEntityTransform> transformsById = compileTransforms(blockEntityRules);
+        Map<String, String> resolvedIds = new LinkedHashMap<>();
+
+        for (Map.Entry<Block, String> entry : resolved.entrySet()) {
+
+            Block source = entry.getKey();
+            String originalId = Registries.BLOCK.getId(source).toString();
+
+            BlockArgumentParser.BlockResult replacement = parseTarget(entry.getValue(), originalId);
+            if (replacement == null) {
+                continue;
+            }
+
+            String target = describe(replacement, entry.getValue());
+            int mapped = mapStates(table, source, null, replacement, transformsById.get(originalId));
+
+            if (mapped > 0) {
+                table.addLabel(originalId + " -> " + target);
+                resolvedIds.put(originalId, target);
+            }
+        }
+
+        // Block state rules override whole-block mappings; the most specific is applied last
+        Map<String, String> sourceIds = new LinkedHashMap<>(resolvedIds);
+        List<MappingRules.StateRule> stateRules = rules.getStateRules();
+
+        for (int i = stateRules.size() - 1; i >= 0; i--) {
+            MappingRules.StateRule rule = stateRules.get(i);
+
+            // Blocks this version lacks are matched by name when chunks are deserialized
+            Optional<Block> source = lookupBlock(rule.getSourceId());
+            if (source.isEmpty()) {
+                continue;
+            }
+
+            BlockArgumentParser.BlockResult matcher = parseState(rule.getKey(), rule.getKey());
+            BlockArgumentParser.BlockResult replacement = parseTarget(rule.getTarget(), rule.getKey());
+            if (matcher == null || replacement == null) {
+                continue;
+            }
+
+            String originalId = Registries.BLOCK.getId(source.get()).toString();
+            String target = describe(replacement, rule.getTarget());
+            int mapped = mapStates(table, source.get(), matcher.properties(), replacement, transformsById.get(originalId));
+
+            if (mapped > 0) {
+                table.addLabel(rule.getKey() + " -> " + target);
+                sourceIds.putIfAbsent(originalId, target);
+            }
+        }
+
+        return table.build(resolvedIds, sourceIds, rules, transformsById);
+    }
+
+    /**
+     * Maps every state of the source block that has the matched property
+     * values (every state when matched is null) to the replacement: shared
+     * properties are copied over, then the replacement's explicit
+     * properties are set. Uses the next mapping ordinal; returns the
+     * number of states mapped.
+     */
+    private static int mapStates(
+            TableBuilder table,
+            Block source,
+            Map<Property<?>, Comparable<?>> matched,
+            BlockArgumentParser.BlockResult replacement,
+            BlockEntityTransform transform
+    ) {
+        Block target = replacement.blockState().getBlock();
+        BlockState targetDefault = target.getDefaultState();
+        PropertyTransferPlan plan = PropertyTransferPlan.create(source, target);
+        int ordinal = table.labels.size();
+        int mapped = 0;
+
+        for (BlockState state : source.getStateManager().getStates()) {
+            if (matched != null && !hasValues(state, matched)) {
+                continue;
+            }
+
+            BlockState targetState = withValues(plan.apply(state, targetDefault), replacement.properties());
+            if (table.put(state, targetState, ordinal, transform)) {
+                mapped++;
+            }
+        }
+
+        if (mapped > 0) {
+            for (Property<?> property : plan.getMissingProperties()) {
+                MissingPropertyLog.record(source, target, property);
+            }
+        }
+
+        return mapped;
+    }
+
+    private static boolean hasValues(BlockState state, Map<Property<?>, Comparable<?>> values) {
+        for (Map.Entry<Property<?>, Comparable<?>> value : values.entrySet()) {
+            if (!state.get(value.getKey()).equals(value.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static BlockState withValues(BlockState state, Map<Property<?>, Comparable<?>> values) {
+        for (Map.Entry<Property<?>, Comparable<?>> value : values.entrySet()) {
+            state = with(state, value.getKey(), value.getValue());
+        }
+        return state;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> BlockState with(BlockState state, Property<T> property, Comparable<?> value) {
+        return state.with(property, (T) value);
+    }
+
+    /**
+     * Parses a replacement block state string, reporting unknown blocks
+     * the same way for plain IDs and block states.
+     */
+    private static BlockArgumentParser.BlockResult parseTarget(String blockState, String source) {
+        if (lookupBlock(MappingRules.blockIdOf(blockState)).isEmpty()) {
+            System.err.println(
+                    "[BlockSubstitutor] Unknown replacement block '"
+                            + blockState
+                            + "' for "
+                            + source
+                            + " (mapping ignored)"
+            );
+            return null;
+        }
+        return parseState(blockState, source);
+    }
+
+    /**
+     * Parses "namespace:id[name=value,...]" with the vanilla block argument
+     * parser, so property names and values are checked against the block.
+     */
+    private static BlockArgumentParser.BlockResult parseState(String blockState, String mapping) {
+        try {
+            return BlockArgumentParser.block(Registries.BLOCK.getReadOnlyWrapper(), blockState, false);
+        } catch (CommandSyntaxException e) {
+            System.err.println(
+                    "[BlockSubstitutor] Invalid block state '" + blockState + "' in mapping " + mapping
+                            + " (mapping ignored): " + e.getMessage()
+            );
+            return null;
+        }
+    }
+
+    /**
+     * Registry ID of the parsed block plus the property list as written:
+     * "minecraft:dropper[facing=up]".
+     */
+    private static String describe(BlockArgumentParser.BlockResult result, String blockState) {
+        String id = Registries.BLOCK.getId(result.blockState().getBlock()).toString();
+        int open = blockState.indexOf('[');
+        return open < 0 ? id : id + blockState.substring(open);
+    }
+
+    /**
+     * Hashes the compiled state pairs, so any change to the mappings or to
+     * the resolved target states produces a different value. Never 0,
+     * which SubstitutionMarkers uses for "not converted".
+     */
+    private static int computeFingerprint(BlockState[] targets) {
+        int hash = 1;
+
+        for (int rawId = 0; rawId < targets.length; rawId++) {
+            if (targets[rawId] != null) {
+                hash = 31 * hash + rawId;
+                hash = 31 * hash + Block.getRawIdFromState(targets[rawId]);
+            }
+        }
+
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Compiles the block entity rules by normalized source ID. Sources
+     * need not be registered: rules for blocks this version does not have
+     * are still used when chunks are rewritten on deserialize.
+     */
+    private static Map<String, BlockEntityTransform> compileTransforms(Map<String, BlockEntityRule> rules) {
+        Map<String, BlockEntityTransform> transforms = new HashMap<>();
+
+        for (Map.Entry<String, BlockEntityRule> entry : rules.entrySet()) {
+            Identifier id = Identifier.tryParse(entry.getKey().trim());
+            if (id != null) {
+                transforms.put(id.toString(), BlockEntityTransform.compile(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        return transforms;
+    }
+
+    private static Optional<Block> lookupBlock(String rawId) {
+        Identifier id = Identifier.tryParse(rawId.trim());
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Registries.BLOCK.getOrEmpty(id);
+    }
+
+    // ---------------------------------------------------------
+    // Lookup
+    // ---------------------------------------------------------
+
+    /**
+     * Returns the precomputed replacement for a state, or null if the
+     * state is not mapped.
+     */
+    public BlockState getTarget(BlockState state) {
+        int rawId = Block.getRawIdFromState(state);
+        if (rawId < 0 || rawId >= targets.length) {
+            return null;
+        }
+        return targets[rawId];
+    }
+
+    /**
+     * Returns true if the state has a replacement. Used as the palette
+     * predicate when deciding whether a chunk section needs scanning.
+     */
+    public boolean isSource(BlockState state) {
+        return getTarget(state) != null;
+    }
+
+    /**
+     * Returns true if the state is mapped and its block has a block
+     * entity, so it can be found through the chunk's block entity index.
+     */
+    public boolean isBlockEntitySource(BlockState state) {
+        int rawId = Block.getRawIdFromState(state);
+        return rawId >= 0 && rawId < blockEntitySources.length && blockEntitySources[rawId];
+    }
+
+    /**
+     * Returns true if the state is mapped and has no block entity, so
+     * only a scan of the block data finds it.
+     */
+    public boolean isPositionSource(BlockState state) {
+        int rawId = Block.getRawIdFromState(state);
+        return rawId >= 0 && rawId < targets.length && targets[rawId] != null && !blockEntitySources[rawId];
+    }
+
+    public boolean hasBlockEntitySources() {
+        return hasBlockEntitySources;
+    }
+
+    public boolean hasPositionSources() {
+        return hasPositionSources;
+    }
+
+    /**
+     * Returns the "old -> new" summary label for a mapped state.
+     */
+    public String getLabel(BlockState state) {
+        int ordinal = getOrdinal(state);
+        return ordinal < 0 ? null : labels[ordinal];
+    }
+
+    /**
+     * Returns the mapping ordinal of a mapped state, in 0 until
+     * getMappingCount(), or -1 if the state is not mapped. Every state of
+     * one source block shares an ordinal.
+     */
+    public int getOrdinal(BlockState state) {
+        int rawId = Block.getRawIdFromState(state);
+        if (rawId < 0 || rawId >= ordinals.length) {
+            return -1;
+        }
+        return ordinals[rawId];
+    }
+
+    /**
+     * Returns the "old -> new" summary label for a mapping ordinal.
+     */
+    public String getLabel(int ordinal) {
+        return labels[ordinal];
+    }
+
+    /**
+     * Returns the block entity transform for a mapped state, or null if
+     * its data is copied unchanged.
+     */
+    public BlockEntityTransform getBlockEntityTransform(BlockState state) {
+        int rawId = Block.getRawIdFromState(state);
+        if (rawId < 0 || rawId >= transforms.length) {
+            return null;
+        }
+        return transforms[rawId];
+    }
+
+    public boolean isEmpty() {
+        return sourceIds.isEmpty();
+    }
+
+    /** Number of source blocks with a replacement. */
+    public int getMappingCount() {
+        return labels.length;
+    }
+
+    /**
+     * Returns every source block ID mapped as a whole with its replacement
+     * block state ("minecraft:stone", "minecraft:furnace[lit=true]"), with
+     * patterns and tags expanded.
+     */
+    public Map<String, String> getResolvedIds() {
+        return resolvedIds;
+    }
+
+    /**
+     * Returns every registered source block ID with at least one mapped
+     * state, including sources of block state rules. Used to pre-filter
+     * serialized palettes by name.
+     */
+    public Map<String, String> getSourceIds() {
+        return sourceIds;
+    }
+
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    // ---------------------------------------------------------
+    // Lookup by Name
+    // ---------------------------------------------------------
+
+    /**
+     * Returns false for the table compiled from an empty mapping set.
+     * Unlike isEmpty(), a table whose sources are all unknown to the
+     * registry still has rules, which serialized chunks can match by name.
+     */
+    public boolean hasRules() {
+        return rules != null;
+    }
+
+    /**
+     * Resolves a serialized block name to its replacement ID. Covers
+     * everything in getResolvedIds() plus sources this version does not
+     * register (blocks from newer versions), matched through exact and
+     * pattern rules. Returns null when the name is not mapped or its
+     * replacement does not exist.
+     */
+    public String resolveName(String sourceId) {
+        String target = resolvedIds.get(sourceId);
+        if (target != null || rules == null) {
+            return target;
+        }
+
+        return checkTarget(sourceId, rules.resolveByName(sourceId));
+    }
+
+    /**
+     * Resolves a serialized block state (name plus its "Properties"
+     * compound, null = none) to its replacement block state string, taking
+     * block state rules into account. Returns null when the state is not
+     * mapped or its replacement does not exist.
+     */
+    public String resolveState(String sourceId, NbtCompound properties) {
+        if (rules == null || !rules.hasStateRules(sourceId)) {
+            return resolveName(sourceId);
+        }
+
+        Map<String, String> values = new HashMap<>();
+        if (properties != null) {
+            for (String key : properties.getKeys()) {
+                values.put(key, properties.getString(key));
+            }
+        }
+
+        return checkTarget(sourceId, rules.resolveState(sourceId, values));
+    }
+
+    /**
+     * Normalizes a replacement found by name, keeping its explicit
+     * properties. Null if the replacement block does not exist or is the
+     * source block itself.
+     */
+    private static String checkTarget(String sourceId, String target) {
+        if (target == null) {
+            return null;
+        }
+
+        Optional<Block> replacement = lookupBlock(MappingRules.blockIdOf(target));
+        if (replacement.isEmpty()) {
+            return null;
+        }
+
+        String replacementId = Registries.BLOCK.getId(replacement.get()).toString();
+        int bracket = target.indexOf('[');
+        if (bracket >= 0) {
+            return replacementId + target.substring(bracket);
+        }
+        return replacementId.equals(sourceId) ? null : replacementId;
+    }
+
+    /**
+     * Returns the block entity transform for a source block ID, or null
+     * if its data is copied unchanged.
+     */
+    public BlockEntityTransform getBlockEntityTransform(String sourceId) {
+        return transformsById.get(sourceId);
+    }
+
+    /**
+     * Returns the block entity type ID a replacement block uses, or null
+     * if it has no block entity.
+     */
+    public String getBlockEntityTypeId(String replacementId) {
+        String typeId = blockEntityTypeIds.computeIfAbsent(replacementId, CompiledMappings::findBlockEntityTypeId);
+        return typeId.isEmpty() ? null : typeId;
+    }
+
+    private static String findBlockEntityTypeId(String blockId) {
+        Optional<Block> block = lookupBlock(blockId);
+        if (block.isEmpty() || !(block.get() instanceof BlockEntityProvider)) {
+            return "";
+        }
+
+        BlockEntity blockEntity = ((BlockEntityProvider) block.get())
+                .createBlockEntity(BlockPos.ORIGIN, block.get().getDefaultState());
+        if (blockEntity == null) {
+            return "";
+        }
+
+        Identifier typeId = BlockEntityType.getId(blockEntity.getType());
+        return typeId == null ? "" : typeId.toString();
+    }
+
+    // ---------------------------------------------------------
+    // Table Builder
+    // ---------------------------------------------------------
+
+    /**
+     * The dense arrays of a table being compiled.
+     */
+    private static final class TableBuilder {
+
+        private final BlockState[] targets;
+        private final int[] ordinals;
+        private final BlockEntityTransform[] transforms;
+        private final boolean[] blockEntitySources;
+        private final List<String> labels = new ArrayList<>();
+
+        private TableBuilder(int stateCount) {
+            this.targets = new BlockState[stateCount];
+            this.ordinals = new int[stateCount];
+            this.transforms = new BlockEntityTransform[stateCount];
+            this.blockEntitySources = new boolean[stateCount];
+            Arrays.fill(ordinals, -1);
+        }
+
+        /**
+         * Maps one source state, replacing any earlier mapping for it.
+         * States that would map to themselves are left unmapped (so a more
+         * specific rule can exempt them); returns false for those.
+         */
+        private boolean put(BlockState source, BlockState target, int ordinal, BlockEntityTransform transform) {
+            int rawId = Block.getRawIdFromState(source);
+            if (rawId < 0 || rawId >= targets.length) {
+                return false;
+            }
+
+            if (target == source) {
+                targets[rawId] = null;
+                ordinals[rawId] = -1;
+                transforms[rawId] = null;
+                blockEntitySources[rawId] = false;
+                return false;
+            }
+
+            boolean viaBlockEntity = source.getBlock() instanceof BlockEntityProvider;
+
+            targets[rawId] = target;
+            ordinals[rawId] = ordinal;
+            transforms[rawId] = transform;
+            blockEntitySources[rawId] = viaBlockEntity;
+            return true;
+        }
+
+        /** Labels the ordinal the last mapStates() call used. */
+        private void addLabel(String label) {
+            labels.add(label);
+        }
+
+        /**
+         * Builds the table. The source classification is derived from the
+         * final slots, since later rules can unmap states set by earlier
+         * ones.
+         */
+        private CompiledMappings build(
+                Map<String, String> resolvedIds,
+                Map<String, String> sourceIds,
+                MappingRules rules,
+                Map<String, BlockEntityTransform> transformsById
+        ) {
+            boolean hasBlockEntitySources = false;
+            boolean hasPositionSources = false;
+
+            for (int rawId = 0; rawId < targets.length; rawId++) {
+                if (targets[rawId] == null) {
+                    continue;
+                }
+                if (blockEntitySources[rawId]) {
+                    hasBlockEntitySources = true;
+                } else {
+                    hasPositionSources = true;
+                }
+            }
+
+            return new CompiledMappings(
+                    targets,
+                    ordinals,
+                    labels.toArray(new String[0]),
+                    transforms,
+                    blockEntitySources,
+                    hasBlockEntitySources,
+                    hasPositionSources,
+                    Collections.unmodifiableMap(resolvedIds),
+                    Collections.unmodifiableMap(sourceIds),
+                    rules,
+                    Collections.unmodifiableMap(transformsById),
+                    computeFingerprint(targets)
+            );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.offline.AuditReport;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import net.minecraft.block.Block;
+
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKey;
+
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.state.property.Property;
+
+import net.minecraft.util.math.ChunkPos;
+
+import net.minecraft.world.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DryRunAudit
+ *
+ * In-game counterpart of the offline dry run: what the chunks scanned
+ * with dryRun set would have changed, in the same AuditReport layout
+ * (per dimension, per region file and missing properties).
+ *
+ * A dry run writes no marker, so a chunk is scanned again every time it
+ * is loaded; each chunk position is recorded once per session and later
+ * loads are reported as skipped. Missing properties are listed for the
+ * source and target blocks actually found, not for every mapping.
+ *
+ * Called from the server thread; the report is written by
+ * MetricsDump.writeAudit() when the server stops.
+ */
+public final class DryRunAudit {
+
+    private static final Map<RegistryKey<World>, LongOpenHashSet> AUDITED = new HashMap<>();
+
+    /** Source and target raw block IDs already checked for missing properties. */
+    private static final LongOpenHashSet CHECKED_PAIRS = new LongOpenHashSet();
+
+    private static AuditReport report = new AuditReport();
+
+    private DryRunAudit() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Returns true if the chunk was already recorded this session.
+     */
+    public static synchronized boolean isAudited(ServerWorld world, ChunkPos pos) {
+        LongOpenHashSet audited = AUDITED.get(world.getRegistryKey());
+        return audited != null && audited.contains(pos.toLong());
+    }
+
+    /**
+     * Records what one chunk's batch would change. replaced is null when
+     * the batch is empty. Returns false if the chunk was already recorded.
+     */
+    public static synchronized boolean record(
+            ServerWorld world,
+            ChunkPos pos,
+            ChunkWriteBatch batch,
+            ReplacementCounts replaced,
+            int blockEntities
+    ) {
+        if (!AUDITED.computeIfAbsent(world.getRegistryKey(), key -> new LongOpenHashSet()).add(pos.toLong())) {
+            return false;
+        }
+
+        String dimension = world.getRegistryKey().getValue().toString();
+        report.addChunks(dimension, 1, replaced == null ? 0 : 1);
+
+        if (replaced == null) {
+            return true;
+        }
+
+        for (int i = 0; i < replaced.size(); i++) {
+            report.addBlocks(dimension, replaced.getLabel(i), replaced.getCount(i));
+        }
+        report.addBlockEntities(dimension, blockEntities);
+        report.addRegionBlocks(
+                dimension + "/r." + pos.getRegionX() + "." + pos.getRegionZ() + ".mca",
+                replaced.getTotal()
+        );
+        report.addMissingProperties(missingProperties(batch));
+
+        return true;
+    }
+
+    /**
+     * Returns the report so far. The caller must not modify it.
+     */
+    public static synchronized AuditReport getReport() {
+        AuditReport copy = new AuditReport();
+        copy.merge(report);
+        return copy;
+    }
+
+    public static synchronized void clear() {
+        AUDITED.clear();
+        CHECKED_PAIRS.clear();
+        report = new AuditReport();
+    }
+
+    /**
+     * "old -> new: property" lines for block pairs in the batch not
+     * checked before.
+     */
+    private static List<String> missingProperties(ChunkWriteBatch batch) {
+        List<String> lines = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            Block source = batch.getOriginal(i).getBlock();
+            Block target = batch.getTarget(i).getBlock();
+            long pair = ((long) Registries.BLOCK.getRawId(source) << 32) | Registries.BLOCK.getRawId(target);
+
+            if (!CHECKED_PAIRS.add(pair)) {
+                continue;
+            }
+
+            for (Property<?> property : PropertyTransferPlan.create(source, target).getMissingProperties()) {
+                lines.add(
+                        Registries.BLOCK.getId(source)
+                                + " -> "
+                                + Registries.BLOCK.getId(target)
+                                + ": "
+                                + property.getName()
+                );
+            }
+        }
+
+        return lines;
+    }
+}
@@ -0,0 +1,14 @@
+package com.zxese.blocksubstitutor.engine;
+
+/**
+ * MarkedChunk
+ *
+ * Implemented by every Chunk through ChunkMixin: holds the substitution
+ * marker (see SubstitutionMarkers). 0 = not converted.
+ */
+public interface MarkedChunk {
+
+    int blocksubstitutor$getFingerprint();
+
+    void blocksubstitutor$setFingerprint(int fingerprint);
+}
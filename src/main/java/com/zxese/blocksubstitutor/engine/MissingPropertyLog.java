@@ -0,0 +1,116 @@
+package com.zxese.blocksubstitutor.engine;
+
+import net.minecraft.block.Block;
+
+import net.minecraft.registry.Registries;
+
+import net.minecraft.state.property.Property;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MissingPropertyLog
+ *
+ * Records source properties that a replacement block does not have, so
+ * the property is dropped when the block is substituted.
+ *
+ * Each distinct (source block, target block, property) case is logged
+ * once and kept for the /blocksub missing report. Keys compare by object
+ * identity; blocks and properties are registry singletons. Safe to call
+ * from any thread, and survives recompiles so saving the config does
+ * not repeat the same warnings.
+ */
+public final class MissingPropertyLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("BlockSubstitutor");
+
+    private static final Set<Key> RECORDED = ConcurrentHashMap.newKeySet();
+
+    private MissingPropertyLog() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Records a missing property, logging it the first time it is seen.
+     */
+    public static void record(Block source, Block target, Property<?> property) {
+        Key key = new Key(source, target, property);
+
+        if (RECORDED.add(key)) {
+            LOGGER.warn(
+                    "Property '{}' from {} is not supported by {} (future messages suppressed for this case)",
+                    property.getName(),
+                    Registries.BLOCK.getId(source),
+                    Registries.BLOCK.getId(target)
+            );
+        }
+    }
+
+    /**
+     * Returns every recorded case as "old -> new: property", sorted.
+     */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>(RECORDED.size());
+
+        for (Key key : RECORDED) {
+            lines.add(
+                    Registries.BLOCK.getId(key.source)
+                            + " -> "
+                            + Registries.BLOCK.getId(key.target)
+                            + ": "
+                            + key.property.getName()
+            );
+        }
+
+        Collections.sort(lines);
+        return lines;
+    }
+
+    public static int size() {
+        return RECORDED.size();
+    }
+
+    /**
+     * Identity key for one missing-property case.
+     */
+    private static final class Key {
+
+        private final Block source;
+        private final Block target;
+        private final Property<?> property;
+        private final int hash;
+
+        private Key(Block source, Block target, Property<?> property) {
+            this.source = source;
+            this.target = target;
+            this.property = property;
+
+            int h = System.identityHashCode(source);
+            h = 31 * h + System.identityHashCode(target);
+            h = 31 * h + System.identityHashCode(property);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return source == other.source
+                    && target == other.target
+                    && property == other.property;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
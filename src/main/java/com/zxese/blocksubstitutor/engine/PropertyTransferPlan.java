@@ -0,0 +1,93 @@
+package com.zxese.blocksubstitutor.engine;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+
+import net.minecraft.state.property.Property;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PropertyTransferPlan
+ *
+ * Precomputed property copy for one (source block, target block) pair.
+ *
+ * Which source properties exist on the target is decided once, when the
+ * plan is built, so applying it to a source state only touches the shared
+ * properties: no lookups, no exceptions, no logging. Properties are
+ * matched by name and value type; a value the target's property does not
+ * allow keeps the target default.
+ */
+final class PropertyTransferPlan {
+
+    /** Source properties that the target block also has. */
+    private final Property<?>[] shared;
+
+    /** The target block's property for each entry of shared. */
+    private final Property<?>[] targets;
+
+    /** Source properties the target block lacks. */
+    private final List<Property<?>> missing;
+
+    private PropertyTransferPlan(Property<?>[] shared, Property<?>[] targets, List<Property<?>> missing) {
+        this.shared = shared;
+        this.targets = targets;
+        this.missing = missing;
+    }
+
+    /**
+     * Builds the plan by comparing the two blocks' state definitions.
+     */
+    static PropertyTransferPlan create(Block source, Block target) {
+        List<Property<?>> shared = new ArrayList<>();
+        List<Property<?>> targets = new ArrayList<>();
+        List<Property<?>> missing = new ArrayList<>();
+
+        for (Property<?> property : source.getStateManager().getProperties()) {
+            Property<?> targetProperty = target.getStateManager().getProperty(property.getName());
+
+            if (targetProperty != null && targetProperty.getType() == property.getType()) {
+                shared.add(property);
+                targets.add(targetProperty);
+            } else {
+                missing.add(property);
+            }
+        }
+
+        return new PropertyTransferPlan(
+                shared.toArray(new Property<?>[0]),
+                targets.toArray(new Property<?>[0]),
+                Collections.unmodifiableList(missing)
+        );
+    }
+
+    /**
+     * Returns the target state for a source state: the target's default
+     * state with every shared property copied over.
+     */
+    BlockState apply(BlockState from, BlockState targetDefault) {
+        BlockState to = targetDefault;
+
+        for (int i = 0; i < shared.length; i++) {
+            to = copy(from.get(shared[i]), to, targets[i]);
+        }
+
+        return to;
+    }
+
+    List<Property<?>> getMissingProperties() {
+        return missing;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> BlockState copy(Comparable<?> value, BlockState to, Property<T> property) {
+        // Same name and type can still allow fewer values (e.g. a narrower int range); keep the default then
+        if (!property.getValues().contains(value)) {
+            return to;
+        }
+
+        return to.with(property, (T) value);
+    }
+}
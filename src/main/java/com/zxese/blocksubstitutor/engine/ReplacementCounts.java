@@ -0,0 +1,89 @@
+package com.zxese.blocksubstitutor.engine;
+
+/**
+ * ReplacementCounts
+ *
+ * Blocks replaced per mapping in one write batch, as parallel ordinal and
+ * count arrays. Built once per chunk and shared by the metrics and the
+ * replacement log; immutable once built.
+ *
+ * Counting goes into a per-thread int[] indexed by mapping ordinal
+ * (CompiledMappings.getOrdinal), which is cleared after each chunk, so a
+ * chunk costs no allocation beyond the two small result arrays. Labels
+ * are looked up from the compiled mappings only when a consumer asks.
+ */
+public final class ReplacementCounts {
+
+    /** Count per mapping ordinal; all zero between calls. */
+    private static final ThreadLocal<int[]> COUNTS_BY_ORDINAL = ThreadLocal.withInitial(() -> new int[0]);
+
+    /** Ordinals touched by the current chunk, in first-seen order. */
+    private static final ThreadLocal<int[]> TOUCHED = ThreadLocal.withInitial(() -> new int[0]);
+
+    private final CompiledMappings mappings;
+    private final int[] ordinals;
+    private final int[] counts;
+    private final int total;
+
+    private ReplacementCounts(CompiledMappings mappings, int[] ordinals, int[] counts, int total) {
+        this.mappings = mappings;
+        this.ordinals = ordinals;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    /**
+     * Counts the entries of a batch by mapping.
+     */
+    public static ReplacementCounts of(CompiledMappings mappings, ChunkWriteBatch batch) {
+        int mappingCount = mappings.getMappingCount();
+
+        int[] countsByOrdinal = COUNTS_BY_ORDINAL.get();
+        int[] touched = TOUCHED.get();
+        if (countsByOrdinal.length < mappingCount) {
+            countsByOrdinal = new int[mappingCount];
+            touched = new int[mappingCount];
+            COUNTS_BY_ORDINAL.set(countsByOrdinal);
+            TOUCHED.set(touched);
+        }
+
+        int size = 0;
+
+        for (int i = 0; i < batch.size(); i++) {
+            int ordinal = mappings.getOrdinal(batch.getOriginal(i));
+            if (countsByOrdinal[ordinal]++ == 0) {
+                touched[size++] = ordinal;
+            }
+        }
+
+        int[] ordinals = new int[size];
+        int[] counts = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            ordinals[i] = touched[i];
+            counts[i] = countsByOrdinal[touched[i]];
+            countsByOrdinal[touched[i]] = 0;
+        }
+
+        return new ReplacementCounts(mappings, ordinals, counts, batch.size());
+    }
+
+    /** Number of distinct mappings. */
+    public int size() {
+        return ordinals.length;
+    }
+
+    /** The "old -> new" label of the i-th mapping. */
+    public String getLabel(int i) {
+        return mappings.getLabel(ordinals[i]);
+    }
+
+    public int getCount(int i) {
+        return counts[i];
+    }
+
+    /** Total blocks replaced. */
+    public int getTotal() {
+        return total;
+    }
+}
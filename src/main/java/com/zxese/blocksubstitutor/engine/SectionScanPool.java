@@ -0,0 +1,57 @@
+package com.zxese.blocksubstitutor.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * SectionScanPool
+ *
+ * Shared fork-join pool for parallel section scans (sectionScanParallelism).
+ * Created on first use and replaced when the configured parallelism
+ * changes, so a reload takes effect on the next chunk.
+ */
+public final class SectionScanPool {
+
+    private static ForkJoinPool pool;
+
+    private SectionScanPool() {
+    }
+
+    /**
+     * Returns the shared pool with the given parallelism, or null when
+     * parallel scanning is off (parallelism below 2).
+     */
+    public static synchronized ForkJoinPool get(int parallelism) {
+        if (parallelism < 2) {
+            return null;
+        }
+
+        if (pool == null || pool.getParallelism() != parallelism) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(parallelism, SectionScanPool::newThread, null, false);
+        }
+
+        return pool;
+    }
+
+    /**
+     * Stops the pool; used when the server stops.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool owner) {
+        // Subclassed so workers inherit the mod class loader instead of the system one
+        ForkJoinWorkerThread thread = new ForkJoinWorkerThread(owner) {
+        };
+        thread.setName("BlockSubstitutor-Scan-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
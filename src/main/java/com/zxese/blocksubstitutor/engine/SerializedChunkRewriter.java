@@ -0,0 +1,220 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.MappingRules;
+import com.zxese.blocksubstitutor.offline.PaletteRewriter;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SerializedChunkRewriter
+ *
+ * Applies the compiled mappings to a chunk's NBT while it is being read
+ * from disk (see ChunkSerializerMixin, enabled by substituteOnDeserialize),
+ * so the chunk is built with its replacement blocks and never needs a
+ * block write, light update or heightmap refresh afterwards.
+ *
+ * Palette entries are renamed in place and their properties kept by name,
+ * as in offline conversion; the game ignores properties the new block
+ * does not have. Block state rules match on the entry's properties, and
+ * properties given in the replacement ("minecraft:dropper[facing=up]")
+ * overwrite the kept ones. Duplicate palette entries are left alone: they
+ * decode to the same state and are merged when the chunk is next saved.
+ *
+ * Because matching is by name, this also converts blocks the running
+ * version does not register, which would otherwise decode as air before
+ * the chunk-load pass could see them. Their block entities are migrated
+ * here too: the block entity rule of the source is applied and the entry
+ * is retyped for the replacement, or dropped if it has no block entity.
+ *
+ * The rewritten chunk differs from what is on disk and has lost its light
+ * and heightmaps, so the caller must flag it for saving.
+ */
+public final class SerializedChunkRewriter {
+
+    private static final int SECTION_VOLUME = 4096;
+
+    private SerializedChunkRewriter() {
+    }
+
+    /**
+     * Rewrites a serialized chunk in place. Returns the number of palette
+     * entries rewritten (0 = chunk unchanged).
+     */
+    public static int rewrite(NbtCompound chunk, CompiledMappings mappings) {
+
+        if (!mappings.hasRules()) {
+            return 0;
+        }
+
+        NbtList sections = chunk.getList("sections", NbtElement.COMPOUND_TYPE);
+        Map<Integer, RenamedSection> renamedSections = null;
+        int renamed = 0;
+
+        for (int i = 0; i < sections.size(); i++) {
+            NbtCompound section = sections.getCompound(i);
+            NbtCompound container = section.getCompound("block_states");
+            NbtList palette = container.getList("palette", NbtElement.COMPOUND_TYPE);
+            String[] originalNames = null;
+            String[] targetNames = null;
+
+            for (int entryIndex = 0; entryIndex < palette.size(); entryIndex++) {
+                NbtCompound entry = palette.getCompound(entryIndex);
+                String name = entry.getString("Name");
+                NbtCompound properties = entry.contains("Properties", NbtElement.COMPOUND_TYPE)
+                        ? entry.getCompound("Properties")
+                        : null;
+                String target = mappings.resolveState(name, properties);
+
+                if (target == null) {
+                    continue;
+                }
+
+                if (originalNames == null) {
+                    originalNames = new String[palette.size()];
+                    targetNames = new String[palette.size()];
+                }
+                originalNames[entryIndex] = name;
+                targetNames[entryIndex] = MappingRules.blockIdOf(target);
+                entry.putString("Name", targetNames[entryIndex]);
+                setProperties(entry, properties, MappingRules.propertiesOf(target));
+                renamed++;
+            }
+
+            if (originalNames != null) {
+                if (renamedSections == null) {
+                    renamedSections = new HashMap<>();
+                }
+                renamedSections.put(
+                        (int) section.getByte("Y"),
+                        new RenamedSection(container, originalNames, targetNames)
+                );
+            }
+        }
+
+        if (renamed == 0) {
+            return 0;
+        }
+
+        rewriteBlockEntities(chunk, mappings, renamedSections);
+
+        // Light and heightmaps were derived from the old blocks; let the game recompute them
+        chunk.putBoolean("isLightOn", false);
+        chunk.remove("Heightmaps");
+
+        return renamed;
+    }
+
+    /**
+     * Writes the replacement's explicit property values over the kept
+     * ones.
+     */
+    private static void setProperties(NbtCompound entry, NbtCompound properties, Map<String, String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+
+        NbtCompound updated = properties == null ? new NbtCompound() : properties;
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            updated.putString(value.getKey(), value.getValue());
+        }
+        entry.put("Properties", updated);
+    }
+
+    // ---------------------------------------------------------
+    // Block Entities
+    // ---------------------------------------------------------
+
+    private static void rewriteBlockEntities(
+            NbtCompound chunk,
+            CompiledMappings mappings,
+            Map<Integer, RenamedSection> renamedSections
+    ) {
+
+        NbtList blockEntities = chunk.getList("block_entities", NbtElement.COMPOUND_TYPE);
+
+        for (int i = blockEntities.size() - 1; i >= 0; i--) {
+            NbtCompound data = blockEntities.getCompound(i);
+            int x = data.getInt("x");
+            int y = data.getInt("y");
+            int z = data.getInt("z");
+
+            RenamedSection section = renamedSections.get(y >> 4);
+            int paletteIndex = section == null ? -1 : section.paletteIndexAt(x & 15, y & 15, z & 15);
+            if (paletteIndex < 0) {
+                continue;
+            }
+
+            String sourceId = section.originalNames[paletteIndex];
+            String typeId = mappings.getBlockEntityTypeId(section.targetNames[paletteIndex]);
+            if (typeId == null) {
+                blockEntities.remove(i);
+                continue;
+            }
+
+            BlockEntityTransform transform = mappings.getBlockEntityTransform(sourceId);
+            if (transform != null) {
+                transform.apply(data);
+            }
+
+            // The transform may drop the position keys; they are not block entity data
+            data.putString("id", typeId);
+            data.putInt("x", x);
+            data.putInt("y", y);
+            data.putInt("z", z);
+        }
+    }
+
+    /**
+     * A section whose palette was renamed, with the names it had before
+     * and the names it was given (null = entry not rewritten). Indices are
+     * unpacked on first lookup only.
+     */
+    private static final class RenamedSection {
+
+        private final NbtCompound container;
+        private final String[] originalNames;
+        private final String[] targetNames;
+        private long[] data;
+        private int bits = -1;
+
+        private RenamedSection(NbtCompound container, String[] originalNames, String[] targetNames) {
+            this.container = container;
+            this.originalNames = originalNames;
+            this.targetNames = targetNames;
+        }
+
+        /**
+         * Returns the palette index of the block at a local position, or -1
+         * if that block was not rewritten or the index array does not have
+         * the length the game expects for the palette.
+         */
+        private int paletteIndexAt(int x, int y, int z) {
+            if (bits < 0) {
+                bits = PaletteRewriter.bitsFor(originalNames.length);
+                data = container.getLongArray("data");
+                if (bits > 0 && data.length != PaletteRewriter.lengthFor(bits)) {
+                    bits = 0;
+                    data = null;
+                }
+            }
+            if (data == null) {
+                return -1;
+            }
+
+            int paletteIndex = 0;
+            if (bits > 0) {
+                int index = (y << 8) | (z << 4) | x;
+                int perLong = 64 / bits;
+                paletteIndex = (int) (data[index / perLong] >>> ((index % perLong) * bits) & ((1L << bits) - 1));
+            }
+
+            return paletteIndex < originalNames.length && originalNames[paletteIndex] != null ? paletteIndex : -1;
+        }
+
+    }
+}
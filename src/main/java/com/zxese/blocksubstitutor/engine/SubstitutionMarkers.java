@@ -0,0 +1,84 @@
+package com.zxese.blocksubstitutor.engine;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * SubstitutionMarkers
+ *
+ * Per-chunk record of whether a chunk has already been fully substituted,
+ * and with which mapping set. The marker is the CompiledMappings
+ * fingerprint the chunk was converted with, stored in the chunk's own NBT
+ * (see ChunkSerializerMixin), so it is saved, deleted and regenerated
+ * together with the chunk data it describes.
+ *
+ * A chunk is skipped on load only while its fingerprint still matches,
+ * so editing the mappings triggers a rescan.
+ */
+public final class SubstitutionMarkers {
+
+    /** Chunk NBT key holding the fingerprint; absent = not converted. */
+    public static final String NBT_KEY = "blocksubstitutor:fingerprint";
+
+    private SubstitutionMarkers() {
+        // Utility class; no instantiation.
+    }
+
+    // ---------------------------------------------------------
+    // Marker Access
+    // ---------------------------------------------------------
+
+    /**
+     * Returns true if the chunk was converted with the given mapping fingerprint.
+     */
+    public static boolean isDone(Chunk chunk, int fingerprint) {
+        return ((MarkedChunk) chunk).blocksubstitutor$getFingerprint() == fingerprint;
+    }
+
+    /**
+     * Records that the chunk no longer contains any mapped block for the
+     * given mapping fingerprint, and flags the chunk for saving so the
+     * marker reaches disk. Returns false if it was already marked.
+     */
+    public static boolean markDone(Chunk chunk, int fingerprint) {
+        MarkedChunk marked = (MarkedChunk) chunk;
+        if (marked.blocksubstitutor$getFingerprint() == fingerprint) {
+            return false;
+        }
+
+        marked.blocksubstitutor$setFingerprint(fingerprint);
+        chunk.setNeedsSaving(true);
+        return true;
+    }
+
+    // ---------------------------------------------------------
+    // Serialization
+    // ---------------------------------------------------------
+
+    /**
+     * Reads the marker from serialized chunk NBT into the decoded chunk.
+     */
+    public static void read(NbtCompound nbt, Chunk chunk) {
+        int fingerprint = nbt.contains(NBT_KEY, NbtElement.INT_TYPE) ? nbt.getInt(NBT_KEY) : 0;
+        ((MarkedChunk) chunk).blocksubstitutor$setFingerprint(fingerprint);
+    }
+
+    /**
+     * Writes the chunk's marker into its serialized NBT, if it has one.
+     */
+    public static void write(Chunk chunk, NbtCompound nbt) {
+        int fingerprint = ((MarkedChunk) chunk).blocksubstitutor$getFingerprint();
+        if (fingerprint != 0) {
+            nbt.putInt(NBT_KEY, fingerprint);
+        }
+    }
+
+    /**
+     * Carries the marker over when a proto chunk is promoted to a full chunk.
+     */
+    public static void copy(Chunk from, Chunk to) {
+        ((MarkedChunk) to).blocksubstitutor$setFingerprint(((MarkedChunk) from).blocksubstitutor$getFingerprint());
+    }
+}
@@ -0,0 +1,266 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.metrics.SubstitutionMetrics;
+
+import net.minecraft.block.BlockState;
+
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SubstitutionPipeline
+ *
+ * Split pipeline used by ProcessingMode.ASYNC:
+ *
+ *   1. Server thread, on chunk load: look up mapped blocks with a block
+ *      entity in the chunk's block entity index, and copy the block
+ *      state containers of the sections that still need a per-block scan.
+ *   2. Analysis executor: scan the copies and build the write batch.
+ *   3. Server thread, end of tick: apply finished batches until the
+ *      per-tick budget (tickBudgetMicros) is spent. Driven by
+ *      SubstitutionScheduler.
+ *
+ * Before a batch is applied, the chunk must still be the loaded instance
+ * and every entry must still hold the state it was analysed with; stale
+ * entries are dropped. A chunk that unloads before its batch is applied
+ * has no marker, so it is simply analysed again on its next load.
+ *
+ * The analysis threads are started on first use and stopped with
+ * shutdown() when the server stops. Every submission is tagged with the
+ * pipeline generation, which clear() advances, so analyses still running
+ * when a world closes never reach the next one.
+ */
+public final class SubstitutionPipeline {
+
+    /** Analysis batches waiting for the server thread. */
+    private final Queue<PendingChunk> ready = new ConcurrentLinkedQueue<>();
+
+    /** Chunks submitted and not yet applied or dropped. */
+    private final Set<WorldChunk> inFlight = ConcurrentHashMap.newKeySet();
+
+    /** Advanced by clear(); results from older generations are dropped. */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private ExecutorService analysisExecutor;
+
+    private synchronized ExecutorService getExecutor() {
+        if (analysisExecutor == null) {
+            // Leave most cores to the server's own worldgen and IO workers
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+            AtomicInteger threadIndex = new AtomicInteger();
+            analysisExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "BlockSubstitutor-Analysis-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return analysisExecutor;
+    }
+
+    // ---------------------------------------------------------
+    // Submission (server thread)
+    // ---------------------------------------------------------
+
+    /**
+     * Snapshots the chunk's relevant sections and queues them for analysis.
+     */
+    @SuppressWarnings("unchecked")
+    public void submit(ServerWorld world, WorldChunk chunk, CompiledMappings mappings) {
+
+        long start = System.nanoTime();
+        ChunkSection[] sections = chunk.getSectionArray();
+        PalettedContainer<BlockState>[] snapshots = new PalettedContainer[sections.length];
+        ChunkWriteBatch blockEntitySources = ChunkScanner.findBlockEntitySources(chunk, mappings);
+        boolean indexed = blockEntitySources != null;
+        boolean anyWork = indexed && !blockEntitySources.isEmpty();
+
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            if (ChunkScanner.needsScan(sections[sectionIndex], mappings, indexed)) {
+                snapshots[sectionIndex] = sections[sectionIndex].getBlockStateContainer().copy();
+                anyWork = true;
+            }
+        }
+
+        if (!anyWork) {
+            SubstitutionMetrics.forWorld(world).recordScan(System.nanoTime() - start);
+            if (SubstitutionMarkers.markDone(chunk, mappings.getFingerprint())) {
+                SubstitutionMetrics.forWorld(world).recordConverted();
+            }
+            return;
+        }
+
+        inFlight.add(chunk);
+
+        long snapshotNanos = System.nanoTime() - start;
+        int submitted = generation.get();
+
+        getExecutor().execute(() -> {
+            if (generation.get() != submitted) {
+                return;
+            }
+
+            try {
+                long analysisStart = System.nanoTime();
+                ChunkWriteBatch batch = new ChunkWriteBatch();
+                ChunkScanner.scanContainers(snapshots, blockEntitySources, mappings, batch);
+
+                SubstitutionMetrics.forWorld(world).recordScan(snapshotNanos + System.nanoTime() - analysisStart);
+                ready.add(new PendingChunk(world, chunk, mappings, batch, submitted));
+
+            } catch (RuntimeException e) {
+                // Release the chunk, or isInFlight() would hold it back until the next clear()
+                if (generation.get() == submitted) {
+                    inFlight.remove(chunk);
+                }
+                System.err.println("[BlockSubstitutor] Analysis of chunk " + chunk.getPos() + " failed: " + e);
+            }
+        });
+    }
+
+    // ---------------------------------------------------------
+    // Apply (server thread)
+    // ---------------------------------------------------------
+
+    /**
+     * Applies finished batches until the deadline (System.nanoTime) passes.
+     */
+    public void applyReady(long deadlineNanos) {
+        PendingChunk pending;
+        while (System.nanoTime() < deadlineNanos && (pending = ready.poll()) != null) {
+            if (pending.generation != generation.get()) {
+                continue;
+            }
+            inFlight.remove(pending.chunk);
+            apply(pending);
+        }
+    }
+
+    /**
+     * Drops everything queued and discards the results of analyses still
+     * running.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        ready.clear();
+        inFlight.clear();
+    }
+
+    /**
+     * Drops all work and stops the analysis threads; used when the server
+     * stops. The next submission starts new threads.
+     */
+    public void shutdown() {
+        clear();
+
+        synchronized (this) {
+            if (analysisExecutor != null) {
+                analysisExecutor.shutdownNow();
+                analysisExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the chunk is being analysed or waiting to be applied.
+     */
+    public boolean isInFlight(WorldChunk chunk) {
+        return inFlight.contains(chunk);
+    }
+
+    /** Chunks being analysed or waiting to be applied. */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /** Analysed chunks waiting for the server thread. */
+    public int getPendingApplyCount() {
+        return ready.size();
+    }
+
+    private void apply(PendingChunk pending) {
+
+        ServerWorld world = pending.world;
+        WorldChunk chunk = pending.chunk;
+
+        // Unloaded (or reloaded as a new instance) since analysis: skip, it is rescanned on load
+        if (world.getChunkManager().getWorldChunk(chunk.getPos().x, chunk.getPos().z) != chunk) {
+            return;
+        }
+
+        // Mappings changed since analysis: analyse again with the current table
+        CompiledMappings current = ConfigManager.getCompiledMappings(world.getRegistryKey());
+        if (current != pending.mappings) {
+            if (!current.isEmpty()) {
+                submit(world, chunk, current);
+            }
+            return;
+        }
+
+        ChunkSubstitution.complete(world, chunk, pending.mappings, retainUnchanged(chunk, pending.batch));
+    }
+
+    /**
+     * Returns the batch without entries whose block changed after the snapshot was taken.
+     */
+    private static ChunkWriteBatch retainUnchanged(WorldChunk chunk, ChunkWriteBatch batch) {
+        ChunkSection[] sections = chunk.getSectionArray();
+        ChunkWriteBatch retained = null;
+
+        for (int i = 0; i < batch.size(); i++) {
+            BlockState current = sections[batch.getSectionIndex(i)]
+                    .getBlockState(batch.getLocalX(i), batch.getLocalY(i), batch.getLocalZ(i));
+            boolean unchanged = current == batch.getOriginal(i);
+
+            if (!unchanged && retained == null) {
+                // First stale entry: copy everything before it
+                retained = new ChunkWriteBatch();
+                for (int j = 0; j < i; j++) {
+                    retained.add(batch, j);
+                }
+            } else if (unchanged && retained != null) {
+                retained.add(batch, i);
+            }
+        }
+
+        return retained == null ? batch : retained;
+    }
+
+    /**
+     * An analysed chunk waiting for the server thread.
+     */
+    private static final class PendingChunk {
+
+        private final ServerWorld world;
+        private final WorldChunk chunk;
+        private final CompiledMappings mappings;
+        private final ChunkWriteBatch batch;
+        private final int generation;
+
+        private PendingChunk(
+                ServerWorld world,
+                WorldChunk chunk,
+                CompiledMappings mappings,
+                ChunkWriteBatch batch,
+                int generation
+        ) {
+            this.world = world;
+            this.chunk = chunk;
+            this.mappings = mappings;
+            this.batch = batch;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.BlockSubConfig;
+import com.zxese.blocksubstitutor.config.ChunkPriority;
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.config.ConfigSnapshot;
+import com.zxese.blocksubstitutor.config.ProcessingMode;
+import com.zxese.blocksubstitutor.metrics.SubstitutionMetrics;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import net.minecraft.registry.RegistryKey;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.util.math.ChunkPos;
+
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * SubstitutionScheduler
+ *
+ * Entry point for every loaded chunk that still needs substitution.
+ *
+ * In IMMEDIATE mode chunks are processed straight away. In SCHEDULED and
+ * ASYNC mode they are queued and drained at the end of each server tick
+ * until tickBudgetMicros is spent, nearest-to-player first by default.
+ * ASYNC hands queued chunks to the SubstitutionPipeline, applying
+ * backpressure once maxChunksInAnalysis chunks are in flight.
+ *
+ * Queued chunks are kept in a priority heap. Player distances are
+ * computed when a chunk is queued and refreshed for the whole queue once
+ * a second, inside the tick budget, instead of sorting the queue every
+ * tick. Entries removed from the queue in the meantime (unloaded or
+ * processed directly) stay in the heap and are skipped when reached.
+ *
+ * A chunk that unloads while queued or in flight is remembered and
+ * processed immediately on its next load, unless it stays unloaded for
+ * longer than UNLOADED_PENDING_TTL_NANOS. All methods run on the server
+ * thread.
+ */
+public final class SubstitutionScheduler {
+
+    /** Ticks between player-distance refreshes of the whole queue. */
+    private static final int REPRIORITIZE_INTERVAL_TICKS = 20;
+
+    /** How long an unloaded, unfinished chunk is remembered. */
+    private static final long UNLOADED_PENDING_TTL_NANOS = 10L * 60 * 1_000_000_000L;
+
+    private final SubstitutionPipeline pipeline = new SubstitutionPipeline();
+
+    /** Queued chunks per dimension, in load order. */
+    private final Map<RegistryKey<World>, Long2ObjectLinkedOpenHashMap<QueuedChunk>> queues = new HashMap<>();
+
+    /** Queued chunks by priority; may hold entries no longer in queues. */
+    private PriorityQueue<QueuedChunk> heap = new PriorityQueue<>();
+
+    /** The ordering the heap was built with. */
+    private ChunkPriority heapPriority = ChunkPriority.NEAREST_PLAYER;
+
+    /** Chunks that unloaded before being processed, per dimension, with the time they unloaded. */
+    private final Map<RegistryKey<World>, Long2LongOpenHashMap> unloadedPending = new HashMap<>();
+
+    private int queuedCount;
+    private long nextSequence;
+    private int ticksSinceReprioritize;
+
+    // ---------------------------------------------------------
+    // Chunk Events
+    // ---------------------------------------------------------
+
+    /**
+     * Called on chunk load once the chunk is known to need a scan.
+     */
+    public void onChunkLoad(ServerWorld world, WorldChunk chunk, CompiledMappings mappings) {
+
+        BlockSubConfig config = ConfigManager.getConfig();
+        long pos = chunk.getPos().toLong();
+        Long2LongOpenHashMap pending = unloadedPending.get(world.getRegistryKey());
+        boolean wasPending = pending != null && pending.containsKey(pos);
+
+        if (wasPending) {
+            pending.remove(pos);
+        }
+
+        if (config.getProcessingMode() == ProcessingMode.IMMEDIATE || wasPending) {
+            processNow(world, chunk, mappings);
+            return;
+        }
+
+        QueuedChunk queued = new QueuedChunk(world, chunk, nextSequence++);
+        queued.priority = priorityOf(queued, heapPriority);
+
+        QueuedChunk previous = queues
+                .computeIfAbsent(world.getRegistryKey(), key -> new Long2ObjectLinkedOpenHashMap<>())
+                .put(pos, queued);
+
+        if (previous == null) {
+            queuedCount++;
+        }
+        heap.add(queued);
+    }
+
+    /**
+     * Called on chunk unload. Remembers chunks whose substitution did not finish.
+     */
+    public void onChunkUnload(ServerWorld world, WorldChunk chunk) {
+        long pos = chunk.getPos().toLong();
+        boolean unfinished = pipeline.isInFlight(chunk);
+
+        Long2ObjectLinkedOpenHashMap<QueuedChunk> queue = queues.get(world.getRegistryKey());
+        if (queue != null && queue.remove(pos) != null) {
+            queuedCount--;
+            unfinished = true;
+        }
+
+        if (unfinished) {
+            unloadedPending.computeIfAbsent(world.getRegistryKey(), key -> new Long2LongOpenHashMap())
+                    .put(pos, System.nanoTime());
+        }
+    }
+
+    /**
+     * Scans and writes a loaded chunk right away, removing it from the queue.
+     */
+    public void processNow(ServerWorld world, WorldChunk chunk, CompiledMappings mappings) {
+        Long2ObjectLinkedOpenHashMap<QueuedChunk> queue = queues.get(world.getRegistryKey());
+        if (queue != null && queue.remove(chunk.getPos().toLong()) != null) {
+            queuedCount--;
+        }
+
+        BlockSubConfig config = ConfigManager.getConfig();
+        ForkJoinPool scanPool = SectionScanPool.get(config.getSectionScanParallelism());
+
+        long start = System.nanoTime();
+        ChunkWriteBatch batch = new ChunkWriteBatch();
+        ChunkWriteBatch blockEntitySources = ChunkScanner.findBlockEntitySources(chunk, mappings);
+        if (scanPool == null) {
+            ChunkScanner.scan(chunk.getSectionArray(), blockEntitySources, mappings, batch);
+        } else {
+            ChunkScanner.scanParallel(
+                    chunk.getSectionArray(),
+                    blockEntitySources,
+                    mappings,
+                    batch,
+                    scanPool,
+                    config.getSectionScanMinSections()
+            );
+        }
+        SubstitutionMetrics.forWorld(world).recordScan(System.nanoTime() - start);
+
+        ChunkSubstitution.complete(world, chunk, mappings, batch);
+    }
+
+    // ---------------------------------------------------------
+    // Tick Drain
+    // ---------------------------------------------------------
+
+    /**
+     * Drains queued work until the per-tick budget is spent.
+     * Called at the end of every server tick.
+     */
+    public void tick(MinecraftServer server) {
+
+        // One snapshot per tick: settings and mappings from the same config version
+        ConfigSnapshot snapshot = ConfigManager.getSnapshot();
+        BlockSubConfig config = snapshot.getConfig();
+        long deadline = System.nanoTime() + config.getTickBudgetMicros() * 1_000L;
+
+        // Finished analyses first: their expensive part is already done
+        pipeline.applyReady(deadline);
+
+        // Housekeeping on a cadence; its cost counts against this tick's budget
+        if (++ticksSinceReprioritize >= REPRIORITIZE_INTERVAL_TICKS || config.getChunkPriority() != heapPriority) {
+            ticksSinceReprioritize = 0;
+            evictUnloadedPending();
+            reprioritize(config.getChunkPriority());
+        }
+
+        if (queuedCount == 0) {
+            heap.clear();
+            return;
+        }
+
+        boolean async = config.getProcessingMode() == ProcessingMode.ASYNC;
+
+        while (!heap.isEmpty()) {
+
+            if (System.nanoTime() >= deadline) {
+                return;
+            }
+            if (async && pipeline.getInFlightCount() >= config.getMaxChunksInAnalysis()) {
+                return;
+            }
+
+            QueuedChunk queued = heap.poll();
+            Long2ObjectLinkedOpenHashMap<QueuedChunk> queue = queues.get(queued.world.getRegistryKey());
+            long pos = queued.chunk.getPos().toLong();
+
+            // Removed or re-queued since it was added to the heap
+            if (queue == null || queue.get(pos) != queued) {
+                continue;
+            }
+
+            queue.remove(pos);
+            queuedCount--;
+
+            CompiledMappings mappings = snapshot.getCompiledMappings(queued.world.getRegistryKey());
+            if (mappings.isEmpty()) {
+                continue;
+            }
+            if (SubstitutionMarkers.isDone(queued.chunk, mappings.getFingerprint())) {
+                SubstitutionMetrics.forWorld(queued.world).recordSkipped();
+                continue;
+            }
+
+            if (async) {
+                pipeline.submit(queued.world, queued.chunk, mappings);
+            } else {
+                processNow(queued.world, queued.chunk, mappings);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the heap from the live queue entries with fresh priorities,
+     * which also drops its stale entries. Linear in the queue size.
+     */
+    private void reprioritize(ChunkPriority priority) {
+        if (priority == ChunkPriority.FIFO && heapPriority == ChunkPriority.FIFO && heap.size() <= 2 * queuedCount) {
+            return;
+        }
+
+        List<QueuedChunk> live = new ArrayList<>(queuedCount);
+
+        for (Long2ObjectLinkedOpenHashMap<QueuedChunk> queue : queues.values()) {
+            for (QueuedChunk queued : queue.values()) {
+                queued.priority = priorityOf(queued, priority);
+                live.add(queued);
+            }
+        }
+
+        heapPriority = priority;
+        heap = new PriorityQueue<>(live);
+    }
+
+    private static long priorityOf(QueuedChunk queued, ChunkPriority priority) {
+        return priority == ChunkPriority.NEAREST_PLAYER
+                ? distanceToNearestPlayer(queued.world, queued.chunk.getPos())
+                : queued.sequence;
+    }
+
+    /**
+     * Forgets unloaded chunks that have not come back within the time
+     * limit; they are queued normally if they ever load again.
+     */
+    private void evictUnloadedPending() {
+        long cutoff = System.nanoTime() - UNLOADED_PENDING_TTL_NANOS;
+
+        for (Long2LongOpenHashMap pending : unloadedPending.values()) {
+            ObjectIterator<Long2LongMap.Entry> iterator = pending.long2LongEntrySet().fastIterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getLongValue() - cutoff < 0) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Squared chunk distance to the closest player in the same world;
+     * Long.MAX_VALUE when the world has no players.
+     */
+    private static long distanceToNearestPlayer(ServerWorld world, ChunkPos pos) {
+        long best = Long.MAX_VALUE;
+
+        for (ServerPlayerEntity player : world.getPlayers()) {
+            ChunkPos playerPos = player.getChunkPos();
+            long dx = playerPos.x - pos.x;
+            long dz = playerPos.z - pos.z;
+            best = Math.min(best, dx * dx + dz * dz);
+        }
+
+        return best;
+    }
+
+    // ---------------------------------------------------------
+    // State
+    // ---------------------------------------------------------
+
+    /**
+     * Drops all queued and in-flight work.
+     */
+    public void clear() {
+        queues.clear();
+        heap.clear();
+        unloadedPending.clear();
+        queuedCount = 0;
+        pipeline.clear();
+    }
+
+    /**
+     * Drops all work and stops the analysis threads; used when the server
+     * stops.
+     */
+    public void shutdown() {
+        clear();
+        pipeline.shutdown();
+    }
+
+    /** Chunks waiting in the queue. */
+    public int getQueueDepth() {
+        return queuedCount;
+    }
+
+    /** Chunks being analysed or waiting to be applied (ASYNC mode). */
+    public int getInFlightCount() {
+        return pipeline.getInFlightCount();
+    }
+
+    /** Chunks that unloaded before being processed. */
+    public int getUnloadedPendingCount() {
+        int count = 0;
+        for (Long2LongOpenHashMap pending : unloadedPending.values()) {
+            count += pending.size();
+        }
+        return count;
+    }
+
+    /**
+     * A loaded chunk waiting for its turn. Ordered by priority, then by
+     * load order.
+     */
+    private static final class QueuedChunk implements Comparable<QueuedChunk> {
+
+        private final ServerWorld world;
+        private final WorldChunk chunk;
+        private final long sequence;
+        private long priority;
+
+        private QueuedChunk(ServerWorld world, WorldChunk chunk, long sequence) {
+            this.world = world;
+            this.chunk = chunk;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(QueuedChunk other) {
+            int byPriority = Long.compare(priority, other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
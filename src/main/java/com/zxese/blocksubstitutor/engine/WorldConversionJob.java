@@ -0,0 +1,544 @@
+package com.zxese.blocksubstitutor.engine;
+
+import com.zxese.blocksubstitutor.config.BlockSubConfig;
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.config.ConfigSnapshot;
+import com.zxese.blocksubstitutor.offline.PaletteRewriter;
+import com.zxese.blocksubstitutor.offline.RawNbt;
+import com.zxese.blocksubstitutor.offline.RegionFile;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.util.math.ChunkPos;
+
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.dimension.DimensionType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * WorldConversionJob
+ *
+ * Converts every generated chunk of every dimension while the server runs.
+ *
+ * Worker threads enumerate chunks from the region files and pre-filter
+ * them by reading their section palettes (read-only). Only fully
+ * generated chunks are considered, so the job never drives world
+ * generation. Chunks that may hold a mapped block are then loaded on the
+ * server thread in bounded batches and substituted right away; at most
+ * conversionMaxChunksInFlight chunks are queued on the server thread at
+ * any time. All chunks are converted with the mappings of the snapshot
+ * the job started with.
+ *
+ * Each dimension is converted with its own lookup table (see
+ * DimensionProfile); dimensions a profile disables are skipped.
+ *
+ * Finished regions are appended to a checkpoint file in the world folder,
+ * together with the dimension's mapping fingerprint, so an interrupted
+ * job resumes where it stopped. A region is only recorded after the
+ * worlds have been saved with its converted chunks; regions finished
+ * since the last save are simply redone, and their already marked chunks
+ * are skipped while pre-filtering.
+ */
+public final class WorldConversionJob {
+
+    private static final String CHECKPOINT_FILE = "blocksubstitutor-conversion.txt";
+
+    private static final long PROGRESS_INTERVAL_NANOS = 10_000_000_000L;
+
+    /** Minimum time between the world saves that make checkpoints durable. */
+    private static final long CHECKPOINT_INTERVAL_NANOS = 30_000_000_000L;
+
+    /** The running job, if any. */
+    private static volatile WorldConversionJob ACTIVE;
+
+    private final MinecraftServer server;
+    private final SubstitutionScheduler scheduler;
+    private final BlockSubConfig config;
+    private final ConfigSnapshot snapshot;
+    private final Path checkpointPath;
+    private final Set<String> finishedRegions;
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicInteger regionsTotal = new AtomicInteger();
+    private final AtomicInteger regionsDone = new AtomicInteger();
+    private final AtomicLong chunksLoaded = new AtomicLong();
+    private final AtomicLong chunksSkipped = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long lastProgressNanos = startNanos;
+
+    /** Finished regions waiting for the next world save; guarded by this. */
+    private final List<String> pendingCheckpoints = new ArrayList<>();
+    private long lastCheckpointNanos = startNanos;
+
+    private WorldConversionJob(MinecraftServer server, SubstitutionScheduler scheduler) {
+        this.server = server;
+        this.scheduler = scheduler;
+        this.snapshot = ConfigManager.getSnapshot();
+        this.config = snapshot.getConfig();
+        this.checkpointPath = server.getSavePath(WorldSavePath.ROOT).resolve(CHECKPOINT_FILE);
+        this.finishedRegions = readCheckpoint(checkpointPath);
+        this.inFlight = new Semaphore(config.getConversionMaxChunksInFlight());
+
+        int threads = config.getConversionThreads() > 0
+                ? config.getConversionThreads()
+                : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "BlockSubstitutor-Convert-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ---------------------------------------------------------
+    // Public API
+    // ---------------------------------------------------------
+
+    /**
+     * Starts a conversion job unless one is already running.
+     * Returns false if a job was already active.
+     */
+    public static synchronized boolean start(MinecraftServer server, SubstitutionScheduler scheduler) {
+        if (ACTIVE != null) {
+            return false;
+        }
+
+        WorldConversionJob job = new WorldConversionJob(server, scheduler);
+        ACTIVE = job;
+        job.submitAll();
+        return true;
+    }
+
+    /**
+     * Stops the running job. Progress so far stays in the checkpoint file.
+     */
+    public static synchronized boolean stop() {
+        WorldConversionJob job = ACTIVE;
+        if (job == null) {
+            return false;
+        }
+        job.cancel();
+        ACTIVE = null;
+        return true;
+    }
+
+    /**
+     * Returns a one-line progress report, or null if no job is running.
+     */
+    public static String status() {
+        WorldConversionJob job = ACTIVE;
+        return job == null ? null : job.describeProgress();
+    }
+
+    // ---------------------------------------------------------
+    // Scheduling
+    // ---------------------------------------------------------
+
+    private void submitAll() {
+        Path root = server.getSavePath(WorldSavePath.ROOT);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        int alreadyDone = 0;
+
+        for (ServerWorld world : server.getWorlds()) {
+            CompiledMappings mappings = snapshot.getCompiledMappings(world.getRegistryKey());
+            if (mappings.isEmpty()) {
+                continue;
+            }
+
+            int fingerprint = mappings.getFingerprint();
+            // Expanded IDs, so pattern, tag and block state mappings also match palettes by name
+            PaletteRewriter filter = new PaletteRewriter(mappings.getSourceIds());
+            Path regionDir = DimensionType.getSaveDirectory(world.getRegistryKey(), root).resolve("region");
+            String dimension = world.getRegistryKey().getValue().toString();
+
+            for (Path regionFile : listRegionFiles(regionDir)) {
+                String checkpointKey = fingerprint + " " + dimension + " " + regionFile.getFileName();
+                if (finishedRegions.contains(checkpointKey)) {
+                    alreadyDone++;
+                    continue;
+                }
+
+                regionsTotal.incrementAndGet();
+                tasks.add(CompletableFuture.runAsync(
+                        () -> convertRegion(world, mappings, filter, regionFile, checkpointKey),
+                        workers
+                ));
+            }
+        }
+
+        System.out.println(
+                "[BlockSubstitutor] World conversion started: " + regionsTotal.get()
+                        + " regions to process (" + alreadyDone + " already done)"
+        );
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, error) -> finish(error));
+    }
+
+    private void convertRegion(
+            ServerWorld world,
+            CompiledMappings mappings,
+            PaletteRewriter filter,
+            Path regionFile,
+            String checkpointKey
+    ) {
+        if (cancelled.get()) {
+            return;
+        }
+
+        List<ChunkPos> candidates = new ArrayList<>();
+        boolean complete = findCandidates(regionFile, mappings.getFingerprint(), filter, candidates);
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        int batchSize = config.getConversionBatchSize();
+
+        for (int start = 0; start < candidates.size() && !cancelled.get(); start += batchSize) {
+            List<ChunkPos> batch = candidates.subList(start, Math.min(start + batchSize, candidates.size()));
+
+            // Backpressure: wait until the server thread has room for this batch
+            if (!acquireInFlight(batch.size())) {
+                break;
+            }
+
+            batches.add(server.submit(() -> loadBatch(world, mappings, batch))
+                    .whenComplete((ignored, error) -> inFlight.release(batch.size())));
+        }
+
+        awaitBatches(batches);
+
+        if (!cancelled.get()) {
+            if (complete) {
+                synchronized (this) {
+                    pendingCheckpoints.add(checkpointKey);
+                }
+                checkpointIfDue(false);
+            }
+            regionsDone.incrementAndGet();
+            reportProgressIfDue();
+        }
+    }
+
+    /**
+     * Adds the chunks of a region that are fully generated, may hold a
+     * mapped block and are not already marked as converted with this
+     * fingerprint. Returns false if some chunks could not be read here
+     * (the server may be writing them); those are left to the chunk-load
+     * pass, and the region is not checkpointed so a later run retries them.
+     */
+    private boolean findCandidates(
+            Path regionFile,
+            int fingerprint,
+            PaletteRewriter filter,
+            List<ChunkPos> candidates
+    ) {
+        int[] regionPos = parseRegionPos(regionFile);
+        if (regionPos == null) {
+            return true;
+        }
+
+        RegionFile region;
+        try {
+            region = RegionFile.read(regionFile);
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to read " + regionFile + ": " + e.getMessage());
+            return false;
+        }
+
+        boolean complete = true;
+
+        for (int slot = 0; slot < RegionFile.CHUNKS_PER_REGION; slot++) {
+            if (!region.hasChunk(slot)) {
+                continue;
+            }
+            if (!region.isReadable(slot)) {
+                complete = false;
+                continue;
+            }
+
+            Map<String, RawNbt.Tag> chunk;
+            try {
+                chunk = region.readChunk(slot);
+            } catch (IOException e) {
+                complete = false;
+                continue;
+            }
+
+            if (!isFull(chunk) || isMarked(chunk, fingerprint) || !filter.hasMappedBlocks(chunk)) {
+                chunksSkipped.incrementAndGet();
+                continue;
+            }
+
+            candidates.add(new ChunkPos(regionPos[0] * 32 + (slot & 31), regionPos[1] * 32 + (slot >> 5)));
+        }
+
+        return complete;
+    }
+
+    /**
+     * True for chunks saved with status "full"; loading any other chunk
+     * would make the game finish generating it.
+     */
+    private static boolean isFull(Map<String, RawNbt.Tag> chunk) {
+        RawNbt.Tag status = chunk.get("Status");
+        if (status == null || status.getType() != RawNbt.TAG_STRING) {
+            return false;
+        }
+        String value = status.asString();
+        return value.equals("full") || value.equals("minecraft:full");
+    }
+
+    private static boolean isMarked(Map<String, RawNbt.Tag> chunk, int fingerprint) {
+        RawNbt.Tag marker = chunk.get(SubstitutionMarkers.NBT_KEY);
+        return marker != null && marker.getValue() instanceof Integer && (Integer) marker.getValue() == fingerprint;
+    }
+
+    /**
+     * Runs on the server thread: loads each chunk and processes it right
+     * away, bypassing the scheduler queue so the chunk cannot unload
+     * first. Chunks unload again on their own.
+     */
+    private void loadBatch(ServerWorld world, CompiledMappings mappings, List<ChunkPos> batch) {
+        int fingerprint = mappings.getFingerprint();
+
+        for (ChunkPos pos : batch) {
+            if (cancelled.get()) {
+                return;
+            }
+
+            // The chunk-load pass may already have converted it
+            WorldChunk chunk = world.getChunk(pos.x, pos.z);
+            if (!SubstitutionMarkers.isDone(chunk, fingerprint)) {
+                scheduler.processNow(world, chunk, mappings);
+            }
+            chunksLoaded.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits for in-flight capacity, giving up once the job is cancelled.
+     */
+    private boolean acquireInFlight(int permits) {
+        try {
+            while (!cancelled.get()) {
+                if (inFlight.tryAcquire(permits, 1, TimeUnit.SECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Waits for submitted batches. Batches never run once the server stops,
+     * so waiting also ends when the job is cancelled.
+     */
+    private void awaitBatches(List<CompletableFuture<Void>> batches) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]));
+
+        while (!cancelled.get()) {
+            try {
+                all.get(1, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // Keep waiting
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("[BlockSubstitutor] Chunk batch failed: " + e.getCause());
+                return;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Checkpoints
+    // ---------------------------------------------------------
+
+    /**
+     * Saves the worlds on the server thread, then records the regions that
+     * were finished before the save. Runs at most once per
+     * CHECKPOINT_INTERVAL_NANOS unless forced. If the server stops before
+     * the save runs, the regions are not recorded.
+     */
+    private void checkpointIfDue(boolean force) {
+        List<String> keys;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (pendingCheckpoints.isEmpty() || (!force && now - lastCheckpointNanos < CHECKPOINT_INTERVAL_NANOS)) {
+                return;
+            }
+            lastCheckpointNanos = now;
+            keys = new ArrayList<>(pendingCheckpoints);
+            pendingCheckpoints.clear();
+        }
+
+        server.submit(this::saveWorlds).whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("[BlockSubstitutor] World save for conversion checkpoint failed: " + error);
+                return;
+            }
+            appendCheckpoints(keys);
+        });
+    }
+
+    /** Writes every dirty chunk and waits for the region files to be flushed. */
+    private void saveWorlds() {
+        for (ServerWorld world : server.getWorlds()) {
+            world.getChunkManager().save(true);
+        }
+    }
+
+    private void cancel() {
+        cancelled.set(true);
+        workers.shutdown();
+    }
+
+    private void finish(Throwable error) {
+        workers.shutdown();
+
+        if (error == null && !cancelled.get()) {
+            checkpointIfDue(true);
+        }
+
+        synchronized (WorldConversionJob.class) {
+            if (ACTIVE == this) {
+                ACTIVE = null;
+            }
+        }
+
+        if (error != null) {
+            System.err.println("[BlockSubstitutor] World conversion failed: " + error.getMessage());
+        } else if (cancelled.get()) {
+            System.out.println("[BlockSubstitutor] World conversion stopped. " + describeProgress());
+        } else {
+            System.out.println("[BlockSubstitutor] World conversion finished. " + describeProgress());
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Progress
+    // ---------------------------------------------------------
+
+    private void reportProgressIfDue() {
+        long now = System.nanoTime();
+        if (now - lastProgressNanos >= PROGRESS_INTERVAL_NANOS) {
+            lastProgressNanos = now;
+            System.out.println("[BlockSubstitutor] World conversion: " + describeProgress());
+        }
+    }
+
+    private String describeProgress() {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        long loaded = chunksLoaded.get();
+
+        return String.format(
+                "%d/%d regions, %d chunks loaded, %d skipped, %.1f chunks/s",
+                regionsDone.get(),
+                regionsTotal.get(),
+                loaded,
+                chunksSkipped.get(),
+                loaded / seconds
+        );
+    }
+
+    // ---------------------------------------------------------
+    // Region Files and Checkpoint
+    // ---------------------------------------------------------
+
+    private static List<Path> listRegionFiles(Path regionDir) {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(regionDir)) {
+            return files;
+        }
+
+        try (Stream<Path> entries = Files.list(regionDir)) {
+            entries.filter(path -> path.getFileName().toString().endsWith(".mca")).forEach(files::add);
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to list " + regionDir + ": " + e.getMessage());
+        }
+
+        return files;
+    }
+
+    /**
+     * Parses "r.X.Z.mca" into {X, Z}, or null if the name does not match.
+     */
+    private static int[] parseRegionPos(Path regionFile) {
+        String[] parts = regionFile.getFileName().toString().split("\\.");
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            return new int[] { Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads finished regions. Line format:
+     * "<fingerprint> <dimension> <region file>"; lines written with another
+     * fingerprint for their dimension simply never match.
+     */
+    private static Set<String> readCheckpoint(Path path) {
+        Set<String> finished = new HashSet<>();
+        if (!Files.exists(path)) {
+            return finished;
+        }
+
+        try {
+            finished.addAll(Files.readAllLines(path, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to read conversion checkpoint: " + e.getMessage());
+        }
+
+        return finished;
+    }
+
+    private synchronized void appendCheckpoints(List<String> checkpointKeys) {
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                checkpointPath,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            for (String checkpointKey : checkpointKeys) {
+                writer.write(checkpointKey);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to write conversion checkpoint: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.zxese.blocksubstitutor.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DimensionMetrics
+ *
+ * Substitution counters and latency histograms for one dimension.
+ * All updates are lock-free and may come from any thread.
+ */
+public final class DimensionMetrics {
+
+    private final LongAdder chunksScanned = new LongAdder();
+    private final LongAdder chunksSkipped = new LongAdder();
+    private final LongAdder chunksConverted = new LongAdder();
+    private final LongAdder blocksReplaced = new LongAdder();
+    private final LongAdder blockEntitiesMigrated = new LongAdder();
+
+    /** Replaced blocks per mapping label ("old -> new"). */
+    private final Map<String, LongAdder> replacedByMapping = new ConcurrentHashMap<>();
+
+    /** Time to find the blocks to replace in one chunk. */
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+
+    /** Server-thread time to write one chunk's replacements. */
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+
+    // ---------------------------------------------------------
+    // Recording
+    // ---------------------------------------------------------
+
+    /** A chunk skipped on load because its marker is current. */
+    public void recordSkipped() {
+        chunksSkipped.increment();
+    }
+
+    /** A chunk newly marked as converted with the current mappings. */
+    public void recordConverted() {
+        chunksConverted.increment();
+    }
+
+    /** A chunk scanned for mapped blocks. */
+    public void recordScan(long nanos) {
+        chunksScanned.increment();
+        scanLatency.record(nanos);
+    }
+
+    /** One chunk's replacements written. */
+    public void recordWrite(long nanos, int blockEntities) {
+        writeLatency.record(nanos);
+        blockEntitiesMigrated.add(blockEntities);
+    }
+
+    /** Blocks replaced by one mapping. */
+    public void recordReplaced(String label, long blocks) {
+        blocksReplaced.add(blocks);
+        replacedByMapping.computeIfAbsent(label, key -> new LongAdder()).add(blocks);
+    }
+
+    // ---------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------
+
+    public long getChunksScanned() {
+        return chunksScanned.sum();
+    }
+
+    public long getChunksSkipped() {
+        return chunksSkipped.sum();
+    }
+
+    public long getChunksConverted() {
+        return chunksConverted.sum();
+    }
+
+    public long getBlocksReplaced() {
+        return blocksReplaced.sum();
+    }
+
+    public long getBlockEntitiesMigrated() {
+        return blockEntitiesMigrated.sum();
+    }
+
+    public LatencyHistogram getScanLatency() {
+        return scanLatency;
+    }
+
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * Returns the mappings that replaced the most blocks, highest first.
+     */
+    public List<Map.Entry<String, Long>> getTopMappings(int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(replacedByMapping.size());
+
+        for (Map.Entry<String, LongAdder> entry : replacedByMapping.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+        }
+
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+}
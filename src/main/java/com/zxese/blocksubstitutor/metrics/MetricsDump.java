@@ -0,0 +1,158 @@
+package com.zxese.blocksubstitutor.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import com.zxese.blocksubstitutor.engine.DryRunAudit;
+import com.zxese.blocksubstitutor.offline.AuditReport;
+
+import net.minecraft.registry.RegistryKey;
+
+import net.minecraft.world.World;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetricsDump
+ *
+ * Optional periodic export of SubstitutionMetrics. Every
+ * metricsDumpIntervalSeconds one JSON object per dimension is appended
+ * to logs/blocksubstitutor-metrics.jsonl, on a background thread.
+ * Counters are cumulative since server start.
+ */
+public final class MetricsDump {
+
+    private static final String FILE_NAME = "blocksubstitutor-metrics.jsonl";
+    private static final String AUDIT_FILE_NAME = "blocksubstitutor-audit.json";
+    private static final int TOP_MAPPINGS = 10;
+
+    private static final Gson GSON = new Gson();
+
+    private static ScheduledExecutorService executor;
+
+    private MetricsDump() {
+        // Utility class; no instantiation.
+    }
+
+    /**
+     * Starts dumping to logDir every intervalSeconds; does nothing if the
+     * interval is 0 or a dump is already running.
+     */
+    public static synchronized void start(Path logDir, int intervalSeconds) {
+        if (intervalSeconds <= 0 || executor != null) {
+            return;
+        }
+
+        Path file = logDir.resolve(FILE_NAME);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BlockSubstitutor-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> dump(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic dump after writing a final one.
+     */
+    public static synchronized void stop(Path logDir) {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdownNow();
+        executor = null;
+        dump(logDir.resolve(FILE_NAME));
+    }
+
+    /**
+     * Writes what a dry run found (see DryRunAudit) to
+     * logs/blocksubstitutor-audit.json, in the same layout as the offline
+     * dry run: per dimension, per region file and the missing properties
+     * of the blocks found.
+     */
+    public static void writeAudit(Path logDir) {
+        AuditReport report = DryRunAudit.getReport();
+
+        Path file = logDir.resolve(AUDIT_FILE_NAME);
+        try {
+            report.write(file);
+            System.out.println("[BlockSubstitutor] Dry run report written to " + file);
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to write dry run report to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void dump(Path file) {
+        long timestamp = System.currentTimeMillis();
+        StringBuilder lines = new StringBuilder();
+
+        for (Map.Entry<RegistryKey<World>, DimensionMetrics> entry : SubstitutionMetrics.getDimensions().entrySet()) {
+            lines.append(GSON.toJson(toJson(timestamp, entry.getKey(), entry.getValue()))).append('\n');
+        }
+
+        if (lines.length() == 0) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(
+                    file,
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            )) {
+                writer.write(lines.toString());
+            }
+        } catch (IOException e) {
+            System.err.println("[BlockSubstitutor] Failed to write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static JsonObject toJson(long timestamp, RegistryKey<World> dimension, DimensionMetrics metrics) {
+        JsonObject json = new JsonObject();
+        json.addProperty("time", timestamp);
+        json.addProperty("dimension", dimension.getValue().toString());
+        json.addProperty("chunksScanned", metrics.getChunksScanned());
+        json.addProperty("chunksSkipped", metrics.getChunksSkipped());
+        json.addProperty("blocksReplaced", metrics.getBlocksReplaced());
+        json.addProperty("blockEntitiesMigrated", metrics.getBlockEntitiesMigrated());
+        json.add("scanNanos", toJson(metrics.getScanLatency()));
+        json.add("writeNanos", toJson(metrics.getWriteLatency()));
+
+        JsonArray mappings = new JsonArray();
+        for (Map.Entry<String, Long> mapping : metrics.getTopMappings(TOP_MAPPINGS)) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("mapping", mapping.getKey());
+            entry.addProperty("blocks", mapping.getValue());
+            mappings.add(entry);
+        }
+        json.add("topMappings", mappings);
+
+        return json;
+    }
+
+    private static JsonObject toJson(LatencyHistogram histogram) {
+        JsonObject json = new JsonObject();
+        json.addProperty("count", histogram.getCount());
+        json.addProperty("mean", histogram.getMean());
+        json.addProperty("p50", histogram.getPercentile(50));
+        json.addProperty("p99", histogram.getPercentile(99));
+        json.addProperty("max", histogram.getMax());
+        return json;
+    }
+}
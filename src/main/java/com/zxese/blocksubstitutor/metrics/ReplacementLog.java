@@ -0,0 +1,287 @@
+package com.zxese.blocksubstitutor.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import com.zxese.blocksubstitutor.config.BlockSubConfig;
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.config.ReplacementLogFormat;
+import com.zxese.blocksubstitutor.engine.ReplacementCounts;
+
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+
+import net.minecraft.registry.RegistryKey;
+
+import net.minecraft.util.math.ChunkPos;
+
+import net.minecraft.world.World;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReplacementLog
+ *
+ * Replacement summary logging, moved off the server thread.
+ *
+ * The server thread only offers one event per converted chunk to a
+ * bounded queue; when the queue is full the event is dropped (and
+ * counted) instead of blocking. A background thread merges the events:
+ *
+ *   TEXT: one console line per dimension every replacementLogWindowSeconds
+ *   JSON: one compact JSON line per chunk in
+ *         logs/blocksubstitutor-replacements.jsonl, flushed every window
+ */
+public final class ReplacementLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("BlockSubstitutor");
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final String FILE_NAME = "blocksubstitutor-replacements.jsonl";
+
+    private static final Gson GSON = new Gson();
+
+    private static final BlockingQueue<Event> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private static Thread worker;
+
+    private ReplacementLog() {
+        // Utility class; no instantiation.
+    }
+
+    // ---------------------------------------------------------
+    // Lifecycle
+    // ---------------------------------------------------------
+
+    /**
+     * Starts the background logging thread; logDir receives the JSON file.
+     */
+    public static synchronized void start(Path logDir) {
+        if (worker != null) {
+            return;
+        }
+
+        worker = new Thread(new Worker(logDir.resolve(FILE_NAME)), "BlockSubstitutor-Log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the background thread after it has written what is queued.
+     */
+    public static synchronized void stop() {
+        if (worker == null) {
+            return;
+        }
+
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    // ---------------------------------------------------------
+    // Recording (any thread, never blocks)
+    // ---------------------------------------------------------
+
+    /**
+     * Queues one chunk's replacement counts; dropped if the queue is full.
+     */
+    public static void record(RegistryKey<World> dimension, ChunkPos pos, ReplacementCounts replaced) {
+        if (!QUEUE.offer(new Event(dimension, pos, replaced))) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    /**
+     * One converted chunk.
+     */
+    private static final class Event {
+
+        private final RegistryKey<World> dimension;
+        private final ChunkPos pos;
+        private final ReplacementCounts replaced;
+        private final long time = System.currentTimeMillis();
+
+        private Event(RegistryKey<World> dimension, ChunkPos pos, ReplacementCounts replaced) {
+            this.dimension = dimension;
+            this.pos = pos;
+            this.replaced = replaced;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Background Aggregation
+    // ---------------------------------------------------------
+
+    private static final class Worker implements Runnable {
+
+        private final Path jsonFile;
+
+        /** Per dimension: mapping label -> blocks replaced in this window. */
+        private final Map<RegistryKey<World>, Object2LongMap<String>> totals = new LinkedHashMap<>();
+        private final Map<RegistryKey<World>, Integer> chunks = new LinkedHashMap<>();
+
+        private BufferedWriter jsonWriter;
+
+        private Worker(Path jsonFile) {
+            this.jsonFile = jsonFile;
+        }
+
+        @Override
+        public void run() {
+            long nextFlush = System.nanoTime() + windowNanos();
+
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long wait = nextFlush - System.nanoTime();
+                    Event event = wait > 0 ? QUEUE.poll(wait, TimeUnit.NANOSECONDS) : null;
+
+                    if (event != null) {
+                        merge(event);
+                    }
+
+                    if (System.nanoTime() >= nextFlush) {
+                        flush();
+                        nextFlush = System.nanoTime() + windowNanos();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopping: write out what is left below
+            }
+
+            Event event;
+            while ((event = QUEUE.poll()) != null) {
+                merge(event);
+            }
+            flush();
+            closeJson();
+        }
+
+        private static long windowNanos() {
+            return TimeUnit.SECONDS.toNanos(ConfigManager.getConfig().getReplacementLogWindowSeconds());
+        }
+
+        private void merge(Event event) {
+            BlockSubConfig config = ConfigManager.getConfig();
+
+            if (config.getReplacementLogFormat() == ReplacementLogFormat.JSON) {
+                writeJson(event);
+                return;
+            }
+
+            Object2LongMap<String> counts = totals.computeIfAbsent(
+                    event.dimension,
+                    key -> new Object2LongLinkedOpenHashMap<>()
+            );
+            for (int i = 0; i < event.replaced.size(); i++) {
+                counts.mergeLong(event.replaced.getLabel(i), event.replaced.getCount(i), Long::sum);
+            }
+            chunks.merge(event.dimension, 1, Integer::sum);
+        }
+
+        private void flush() {
+            long dropped = DROPPED.getAndSet(0);
+
+            for (Map.Entry<RegistryKey<World>, Object2LongMap<String>> entry : totals.entrySet()) {
+                long blocks = 0;
+                StringBuilder detail = new StringBuilder();
+
+                for (Object2LongMap.Entry<String> mapping : entry.getValue().object2LongEntrySet()) {
+                    blocks += mapping.getLongValue();
+                    if (detail.length() > 0) {
+                        detail.append(", ");
+                    }
+                    detail.append(mapping.getKey()).append(" : ").append(mapping.getLongValue());
+                }
+
+                LOGGER.info(
+                        "Replaced {} blocks in {} chunks in {} ({})",
+                        blocks,
+                        chunks.get(entry.getKey()),
+                        entry.getKey().getValue(),
+                        detail
+                );
+            }
+
+            totals.clear();
+            chunks.clear();
+
+            if (dropped > 0) {
+                LOGGER.warn("Replacement log queue full; {} chunk summaries dropped", dropped);
+            }
+
+            if (jsonWriter != null) {
+                try {
+                    jsonWriter.flush();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to flush {}: {}", jsonFile, e.getMessage());
+                    closeJson();
+                }
+            }
+        }
+
+        private void writeJson(Event event) {
+            JsonObject json = new JsonObject();
+            json.addProperty("time", event.time);
+            json.addProperty("dimension", event.dimension.getValue().toString());
+            json.addProperty("x", event.pos.x);
+            json.addProperty("z", event.pos.z);
+
+            JsonObject replaced = new JsonObject();
+            for (int i = 0; i < event.replaced.size(); i++) {
+                replaced.addProperty(event.replaced.getLabel(i), event.replaced.getCount(i));
+            }
+            json.add("replaced", replaced);
+
+            try {
+                if (jsonWriter == null) {
+                    Files.createDirectories(jsonFile.getParent());
+                    jsonWriter = Files.newBufferedWriter(
+                            jsonFile,
+                            StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND
+                    );
+                }
+                jsonWriter.write(GSON.toJson(json));
+                jsonWriter.newLine();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write {}: {}", jsonFile, e.getMessage());
+                closeJson();
+            }
+        }
+
+        private void closeJson() {
+            if (jsonWriter == null) {
+                return;
+            }
+            try {
+                jsonWriter.close();
+            } catch (IOException e) {
+                // Nothing left to do with a broken log file
+            }
+            jsonWriter = null;
+        }
+    }
+}
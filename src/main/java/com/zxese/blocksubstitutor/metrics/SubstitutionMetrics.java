@@ -0,0 +1,66 @@
+package com.zxese.blocksubstitutor.metrics;
+
+import com.zxese.blocksubstitutor.engine.ReplacementCounts;
+
+import net.minecraft.registry.RegistryKey;
+
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.world.World;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SubstitutionMetrics
+ *
+ * Process-wide registry of DimensionMetrics, keyed by world registry key.
+ * Read by /blocksub stats and the periodic MetricsDump; cleared when the
+ * server stops.
+ */
+public final class SubstitutionMetrics {
+
+    private static final Map<RegistryKey<World>, DimensionMetrics> DIMENSIONS = new ConcurrentHashMap<>();
+
+    private SubstitutionMetrics() {
+        // Utility class; no instantiation.
+    }
+
+    public static DimensionMetrics forWorld(ServerWorld world) {
+        return forDimension(world.getRegistryKey());
+    }
+
+    public static DimensionMetrics forDimension(RegistryKey<World> dimension) {
+        return DIMENSIONS.computeIfAbsent(dimension, key -> new DimensionMetrics());
+    }
+
+    /**
+     * Records a written batch: latency, migrated block entities and
+     * replaced blocks per mapping.
+     */
+    public static void recordWrite(
+            ServerWorld world,
+            ReplacementCounts replaced,
+            int blockEntities,
+            long nanos
+    ) {
+        DimensionMetrics metrics = forWorld(world);
+        metrics.recordWrite(nanos, blockEntities);
+
+        for (int i = 0; i < replaced.size(); i++) {
+            metrics.recordReplaced(replaced.getLabel(i), replaced.getCount(i));
+        }
+    }
+
+    /**
+     * Read-only view of every dimension seen so far.
+     */
+    public static Map<RegistryKey<World>, DimensionMetrics> getDimensions() {
+        return Collections.unmodifiableMap(DIMENSIONS);
+    }
+
+    public static void clear() {
+        DIMENSIONS.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package com.zxese.blocksubstitutor.mixin;
+
+import com.zxese.blocksubstitutor.engine.MarkedChunk;
+
+import net.minecraft.world.chunk.Chunk;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+/**
+ * ChunkMixin
+ *
+ * Gives every chunk a field for its substitution marker. The field is
+ * read and written with the chunk NBT in ChunkSerializerMixin.
+ */
+@Mixin(Chunk.class)
+public abstract class ChunkMixin implements MarkedChunk {
+
+    @Unique
+    private volatile int blocksubstitutor$fingerprint;
+
+    @Override
+    public int blocksubstitutor$getFingerprint() {
+        return blocksubstitutor$fingerprint;
+    }
+
+    @Override
+    public void blocksubstitutor$setFingerprint(int fingerprint) {
+        this.blocksubstitutor$fingerprint = fingerprint;
+    }
+}
@@ -0,0 +1,93 @@
+package com.zxese.blocksubstitutor.mixin;
+
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.config.ConfigSnapshot;
+import com.zxese.blocksubstitutor.engine.SerializedChunkRewriter;
+import com.zxese.blocksubstitutor.engine.SubstitutionMarkers;
+
+import net.minecraft.nbt.NbtCompound;
+
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.util.math.ChunkPos;
+
+import net.minecraft.world.ChunkSerializer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.ReadOnlyChunk;
+import net.minecraft.world.poi.PointOfInterestStorage;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * ChunkSerializerMixin
+ *
+ * Rewrites the chunk NBT before ChunkSerializer decodes it, when
+ * substituteOnDeserialize is enabled and dryRun is not. The chunk-load
+ * pass still runs afterwards, finds nothing left to replace and marks
+ * the chunk done. A rewritten chunk is flagged for saving, so the
+ * converted blocks and recomputed light reach disk even if nothing else
+ * changes in it.
+ *
+ * Also carries the substitution marker (see SubstitutionMarkers) between
+ * the chunk NBT and the decoded chunk.
+ */
+@Mixin(ChunkSerializer.class)
+public abstract class ChunkSerializerMixin {
+
+    /** Set between HEAD and RETURN of deserialize when the NBT was rewritten. */
+    @Unique
+    private static final ThreadLocal<Boolean> blocksubstitutor$REWRITTEN = ThreadLocal.withInitial(() -> false);
+
+    @Inject(method = "deserialize", at = @At("HEAD"))
+    private static void blocksubstitutor$rewritePalettes(
+            ServerWorld world,
+            PointOfInterestStorage poiStorage,
+            ChunkPos chunkPos,
+            NbtCompound nbt,
+            CallbackInfoReturnable<ProtoChunk> cir
+    ) {
+        ConfigSnapshot snapshot = ConfigManager.getSnapshot();
+        int renamed = 0;
+        if (snapshot.getConfig().isSubstituteOnDeserialize() && !snapshot.getConfig().isDryRun()) {
+            renamed = SerializedChunkRewriter.rewrite(nbt, snapshot.getCompiledMappings(world.getRegistryKey()));
+        }
+
+        // Always set, so a deserialize that threw cannot leak the flag to the next chunk
+        blocksubstitutor$REWRITTEN.set(renamed > 0);
+    }
+
+    @Inject(method = "deserialize", at = @At("RETURN"))
+    private static void blocksubstitutor$readMarker(
+            ServerWorld world,
+            PointOfInterestStorage poiStorage,
+            ChunkPos chunkPos,
+            NbtCompound nbt,
+            CallbackInfoReturnable<ProtoChunk> cir
+    ) {
+        Chunk chunk = unwrap(cir.getReturnValue());
+        SubstitutionMarkers.read(nbt, chunk);
+
+        if (blocksubstitutor$REWRITTEN.get()) {
+            chunk.setNeedsSaving(true);
+        }
+    }
+
+    @Inject(method = "serialize", at = @At("RETURN"))
+    private static void blocksubstitutor$writeMarker(
+            ServerWorld world,
+            Chunk chunk,
+            CallbackInfoReturnable<NbtCompound> cir
+    ) {
+        SubstitutionMarkers.write(chunk, cir.getReturnValue());
+    }
+
+    /** Full chunks are returned wrapped; the wrapped chunk is the one that is kept. */
+    private static Chunk unwrap(ProtoChunk chunk) {
+        return chunk instanceof ReadOnlyChunk ? ((ReadOnlyChunk) chunk).getWrappedChunk() : chunk;
+    }
+}
@@ -0,0 +1,36 @@
+package com.zxese.blocksubstitutor.mixin;
+
+import com.zxese.blocksubstitutor.engine.SubstitutionMarkers;
+
+import net.minecraft.server.world.ServerWorld;
+
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.WorldChunk;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * WorldChunkMixin
+ *
+ * Keeps the substitution marker when a proto chunk is promoted to a full
+ * chunk.
+ */
+@Mixin(WorldChunk.class)
+public abstract class WorldChunkMixin {
+
+    @Inject(
+            method = "<init>(Lnet/minecraft/server/world/ServerWorld;Lnet/minecraft/world/chunk/ProtoChunk;Lnet/minecraft/world/chunk/WorldChunk$EntityLoader;)V",
+            at = @At("RETURN")
+    )
+    private void blocksubstitutor$copyMarker(
+            ServerWorld world,
+            ProtoChunk protoChunk,
+            WorldChunk.EntityLoader entityLoader,
+            CallbackInfo ci
+    ) {
+        SubstitutionMarkers.copy(protoChunk, (WorldChunk) (Object) this);
+    }
+}
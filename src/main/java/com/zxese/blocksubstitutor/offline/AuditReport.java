@@ -0,0 +1,180 @@
+package com.zxese.blocksubstitutor.offline;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * AuditReport
+ *
+ * What a dry run would have changed: chunks, blocks per mapping and
+ * block entities, per dimension and per region file, plus the properties
+ * replacement blocks do not have. Filled by the offline dry run
+ * (RegionConverter --dry-run) or from the in-game metrics when dryRun is
+ * set, and written as one compact JSON object.
+ *
+ * Not thread-safe except for merge(); parallel workers fill their own
+ * report and merge it into the shared one.
+ */
+public final class AuditReport {
+
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final Map<String, Totals> dimensions = new TreeMap<>();
+    private final Map<String, Long> blocksByRegion = new TreeMap<>();
+    private final TreeSet<String> missingProperties = new TreeSet<>();
+
+    // ---------------------------------------------------------
+    // Recording
+    // ---------------------------------------------------------
+
+    public void addChunks(String dimension, long read, long affected) {
+        Totals totals = totals(dimension);
+        totals.chunksRead += read;
+        totals.chunksAffected += affected;
+    }
+
+    /** Blocks one mapping would replace. */
+    public void addBlocks(String dimension, String mapping, long blocks) {
+        Totals totals = totals(dimension);
+        totals.blocks += blocks;
+        totals.byMapping.merge(mapping, blocks, Long::sum);
+    }
+
+    /** Blocks that would be replaced in one region file. */
+    public void addRegionBlocks(String region, long blocks) {
+        blocksByRegion.merge(region, blocks, Long::sum);
+    }
+
+    /** Block entities whose block would be replaced. */
+    public void addBlockEntities(String dimension, long blockEntities) {
+        totals(dimension).blockEntities += blockEntities;
+    }
+
+    /** "old -> new: property" lines. */
+    public void addMissingProperties(Collection<String> lines) {
+        missingProperties.addAll(lines);
+    }
+
+    /**
+     * Adds everything from another report. Safe to call from several
+     * threads at once.
+     */
+    public synchronized void merge(AuditReport other) {
+        for (Map.Entry<String, Totals> entry : other.dimensions.entrySet()) {
+            Totals from = entry.getValue();
+            Totals into = totals(entry.getKey());
+            into.chunksRead += from.chunksRead;
+            into.chunksAffected += from.chunksAffected;
+            into.blocks += from.blocks;
+            into.blockEntities += from.blockEntities;
+            from.byMapping.forEach((mapping, blocks) -> into.byMapping.merge(mapping, blocks, Long::sum));
+        }
+
+        other.blocksByRegion.forEach((region, blocks) -> blocksByRegion.merge(region, blocks, Long::sum));
+        missingProperties.addAll(other.missingProperties);
+    }
+
+    private Totals totals(String dimension) {
+        return dimensions.computeIfAbsent(dimension, key -> new Totals());
+    }
+
+    // ---------------------------------------------------------
+    // Output
+    // ---------------------------------------------------------
+
+    public synchronized long getBlocks() {
+        long blocks = 0;
+        for (Totals totals : dimensions.values()) {
+            blocks += totals.blocks;
+        }
+        return blocks;
+    }
+
+    /**
+     * Writes the report as a single JSON object, replacing the file.
+     * Mappings are listed busiest first.
+     */
+    public synchronized void write(Path file) throws IOException {
+        Totals all = new Totals();
+        JsonObject byDimension = new JsonObject();
+
+        for (Map.Entry<String, Totals> entry : dimensions.entrySet()) {
+            Totals totals = entry.getValue();
+            all.chunksRead += totals.chunksRead;
+            all.chunksAffected += totals.chunksAffected;
+            all.blocks += totals.blocks;
+            all.blockEntities += totals.blockEntities;
+            totals.byMapping.forEach((mapping, blocks) -> all.byMapping.merge(mapping, blocks, Long::sum));
+
+            byDimension.add(entry.getKey(), totals.toJson());
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("dryRun", true);
+        all.toJson().entrySet().forEach(entry -> json.add(entry.getKey(), entry.getValue()));
+        json.add("byDimension", byDimension);
+
+        JsonObject byRegion = new JsonObject();
+        blocksByRegion.forEach(byRegion::addProperty);
+        json.add("byRegion", byRegion);
+
+        JsonArray missing = new JsonArray();
+        missingProperties.forEach(missing::add);
+        json.add("missingProperties", missing);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GSON.toJson(json, writer);
+        }
+    }
+
+    /**
+     * Counters for one dimension.
+     */
+    private static final class Totals {
+
+        private long chunksRead;
+        private long chunksAffected;
+        private long blocks;
+        private long blockEntities;
+        private final Map<String, Long> byMapping = new HashMap<>();
+
+        private JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("chunksRead", chunksRead);
+            json.addProperty("chunksAffected", chunksAffected);
+            json.addProperty("blocks", blocks);
+            json.addProperty("blockEntities", blockEntities);
+
+            List<Map.Entry<String, Long>> sorted = new ArrayList<>(byMapping.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+            JsonObject mappings = new JsonObject();
+            for (Map.Entry<String, Long> entry : sorted) {
+                mappings.addProperty(entry.getKey(), entry.getValue());
+            }
+            json.add("byMapping", mappings);
+
+            return json;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.zxese.blocksubstitutor.offline;
+
+import com.zxese.blocksubstitutor.config.MappingRules;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PaletteRewriter
+ *
+ * Rewrites block names in the section palettes of a serialized chunk
+ * (1.18+ layout: sections[].block_states.{palette, data}).
+ *
+ * Only palette entries are renamed; the packed index array is left as is
+ * unless two entries collapse into the same state, in which case the
+ * palette is deduplicated and the indices repacked at the width for the
+ * new palette size. If the index array does not have the length the game
+ * expects for its palette, the duplicates are kept, which the game
+ * accepts. Blockstate properties
+ * are kept by name; the game ignores properties the new block does not
+ * have and uses defaults for the ones it lacks, which matches the
+ * shared-property copy done at runtime.
+ *
+ * Source names are matched through MappingRules, so exact, glob, regex
+ * and block state keys work; tag keys need the game registry and are
+ * ignored here. Properties given in the replacement
+ * ("minecraft:dropper[facing=up]") overwrite the kept ones.
+ */
+public final class PaletteRewriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("BlockSubstitutor");
+
+    private static final int SECTION_VOLUME = 4096;
+
+    /** Largest palette stored at no less than 4 bits per index. */
+    public static final int MAX_LOCAL_PALETTE_SIZE = 256;
+
+    /** SubstitutionMarkers.NBT_KEY; this package does not load game classes. */
+    private static final String MARKER_KEY = "blocksubstitutor:fingerprint";
+
+    private final MappingRules rules;
+
+    public PaletteRewriter(Map<String, String> mappings) {
+        this.rules = MappingRules.parse(mappings);
+    }
+
+    /**
+     * Rewrites every section palette of a chunk. Returns the number of
+     * palette entries that were renamed (0 = chunk unchanged).
+     */
+    public int rewriteChunk(Map<String, RawNbt.Tag> chunk) {
+
+        RawNbt.Tag sectionsTag = chunk.get("sections");
+        if (sectionsTag == null || sectionsTag.asList() == null) {
+            return 0;
+        }
+
+        int renamed = 0;
+
+        for (RawNbt.Tag sectionTag : sectionsTag.asList().getItems()) {
+            Map<String, RawNbt.Tag> section = sectionTag.asCompound();
+            if (section == null) {
+                continue;
+            }
+
+            RawNbt.Tag blockStates = section.get("block_states");
+            if (blockStates != null && blockStates.asCompound() != null) {
+                renamed += rewriteContainer(blockStates.asCompound());
+            }
+        }
+
+        if (renamed > 0) {
+            invalidateDerivedData(chunk);
+        }
+
+        return renamed;
+    }
+
+    /**
+     * Returns true if any section palette of the chunk names a mapped block.
+     * Read-only; used to pre-filter chunks before loading them in game.
+     */
+    public boolean hasMappedBlocks(Map<String, RawNbt.Tag> chunk) {
+
+        RawNbt.Tag sectionsTag = chunk.get("sections");
+        if (sectionsTag == null || sectionsTag.asList() == null) {
+            return false;
+        }
+
+        for (RawNbt.Tag sectionTag : sectionsTag.asList().getItems()) {
+            Map<String, RawNbt.Tag> section = sectionTag.asCompound();
+            RawNbt.Tag blockStates = section == null ? null : section.get("block_states");
+            if (blockStates == null || blockStates.asCompound() == null) {
+                continue;
+            }
+
+            RawNbt.Tag paletteTag = blockStates.asCompound().get("palette");
+            if (paletteTag == null || paletteTag.asList() == null) {
+                continue;
+            }
+
+            for (RawNbt.Tag entryTag : paletteTag.asList().getItems()) {
+                if (resolve(entryTag.asCompound()) != null) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // ---------------------------------------------------------
+    // Dry Run
+    // ---------------------------------------------------------
+
+    /**
+     * Counts what rewriteChunk would change without modifying the chunk:
+     * blocks per mapping (from the unpacked palette indices) and block
+     * entities standing on a mapped block. Returns the number of blocks
+     * that would be replaced.
+     */
+    public long auditChunk(Map<String, RawNbt.Tag> chunk, String dimension, AuditReport report) {
+
+        RawNbt.Tag sectionsTag = chunk.get("sections");
+        if (sectionsTag == null || sectionsTag.asList() == null) {
+            report.addChunks(dimension, 1, 0);
+            return 0;
+        }
+
+        // Section Y -> mapping label per block index (null = not mapped), for block entity lookups
+        Map<Integer, String[]> mappedBlocks = new HashMap<>();
+        long blocks = 0;
+
+        for (RawNbt.Tag sectionTag : sectionsTag.asList().getItems()) {
+            Map<String, RawNbt.Tag> section = sectionTag.asCompound();
+            RawNbt.Tag blockStates = section == null ? null : section.get("block_states");
+            if (blockStates == null || blockStates.asCompound() == null) {
+                continue;
+            }
+
+            String[] labels = auditContainer(blockStates.asCompound());
+            if (labels == null) {
+                continue;
+            }
+
+            for (String label : labels) {
+                if (label != null) {
+                    blocks++;
+                }
+            }
+            mappedBlocks.put(intValue(section.get("Y")), labels);
+        }
+
+        if (blocks > 0) {
+            countMappings(mappedBlocks, dimension, report);
+            report.addBlockEntities(dimension, countBlockEntities(chunk, mappedBlocks));
+        }
+
+        report.addChunks(dimension, 1, blocks > 0 ? 1 : 0);
+        return blocks;
+    }
+
+    /**
+     * Returns the mapping label of every block in the container, or null
+     * if its palette has no mapped entry.
+     */
+    private String[] auditContainer(Map<String, RawNbt.Tag> container) {
+
+        RawNbt.Tag paletteTag = container.get("palette");
+        if (paletteTag == null || paletteTag.asList() == null) {
+            return null;
+        }
+
+        List<RawNbt.Tag> palette = paletteTag.asList().getItems();
+        String[] paletteLabels = null;
+
+        for (int i = 0; i < palette.size(); i++) {
+            Map<String, RawNbt.Tag> entry = palette.get(i).asCompound();
+            String target = resolve(entry);
+            if (target != null) {
+                if (paletteLabels == null) {
+                    paletteLabels = new String[palette.size()];
+                }
+                paletteLabels[i] = entry.get("Name").asString() + " -> " + target;
+            }
+        }
+
+        if (paletteLabels == null) {
+            return null;
+        }
+
+        String[] labels = new String[SECTION_VOLUME];
+        RawNbt.Tag dataTag = container.get("data");
+        long[] data = dataTag == null ? null : dataTag.asLongArray();
+        int bits = palette.size() <= 1 || data == null ? 0 : storedBits(palette.size(), data);
+
+        if (bits < 0) {
+            LOGGER.warn("Skipped a section with an unreadable index array of {} palette entries", palette.size());
+            return null;
+        }
+
+        if (bits == 0) {
+            Arrays.fill(labels, paletteLabels[0]);
+        } else {
+            int[] indices = unpack(data, bits);
+            for (int i = 0; i < SECTION_VOLUME; i++) {
+                labels[i] = paletteLabels[Math.min(indices[i], palette.size() - 1)];
+            }
+        }
+
+        return labels;
+    }
+
+    private static void countMappings(Map<Integer, String[]> mappedBlocks, String dimension, AuditReport report) {
+        Map<String, Long> counts = new HashMap<>();
+
+        for (String[] labels : mappedBlocks.values()) {
+            String last = null;
+            long run = 0;
+
+            // Equal labels come in long runs; count each run with one map update
+            for (String label : labels) {
+                if (label != last) {
+                    if (last != null) {
+                        counts.merge(last, run, Long::sum);
+                    }
+                    last = label;
+                    run = 0;
+                }
+                run++;
+            }
+            if (last != null) {
+                counts.merge(last, run, Long::sum);
+            }
+        }
+
+        counts.forEach((label, blocks) -> report.addBlocks(dimension, label, blocks));
+    }
+
+    private static long countBlockEntities(Map<String, RawNbt.Tag> chunk, Map<Integer, String[]> mappedBlocks) {
+        RawNbt.Tag blockEntities = chunk.get("block_entities");
+        if (blockEntities == null || blockEntities.asList() == null) {
+            return 0;
+        }
+
+        long count = 0;
+
+        for (RawNbt.Tag tag : blockEntities.asList().getItems()) {
+            Map<String, RawNbt.Tag> blockEntity = tag.asCompound();
+            if (blockEntity == null) {
+                continue;
+            }
+
+            int x = intValue(blockEntity.get("x"));
+            int y = intValue(blockEntity.get("y"));
+            int z = intValue(blockEntity.get("z"));
+
+            String[] labels = mappedBlocks.get(y >> 4);
+            if (labels != null && labels[(y & 15) << 8 | (z & 15) << 4 | (x & 15)] != null) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int intValue(RawNbt.Tag tag) {
+        return tag != null && tag.getValue() instanceof Number ? ((Number) tag.getValue()).intValue() : 0;
+    }
+
+    /**
+     * Forces the game to recompute light and heightmaps for a changed
+     * chunk instead of trusting data derived from the old blocks, and to
+     * rescan it once with the in-game mappings.
+     */
+    private static void invalidateDerivedData(Map<String, RawNbt.Tag> chunk) {
+        chunk.put("isLightOn", RawNbt.Tag.ofByte((byte) 0));
+        chunk.remove("Heightmaps");
+        chunk.remove(MARKER_KEY);
+    }
+
+    // ---------------------------------------------------------
+    // Palette Rewriting
+    // ---------------------------------------------------------
+
+    private int rewriteContainer(Map<String, RawNbt.Tag> container) {
+
+        RawNbt.Tag paletteTag = container.get("palette");
+        if (paletteTag == null || paletteTag.asList() == null) {
+            return 0;
+        }
+
+        List<RawNbt.Tag> palette = paletteTag.asList().getItems();
+        int renamed = 0;
+
+        for (RawNbt.Tag entryTag : palette) {
+            Map<String, RawNbt.Tag> entry = entryTag.asCompound();
+            String target = resolve(entry);
+            if (target != null) {
+                entry.put("Name", RawNbt.Tag.ofString(MappingRules.blockIdOf(target)));
+                setProperties(entry, MappingRules.propertiesOf(target));
+                renamed++;
+            }
+        }
+
+        if (renamed > 0) {
+            deduplicate(container, palette);
+        }
+
+        return renamed;
+    }
+
+    /**
+     * Returns the replacement block state for a palette entry, or null if
+     * it is not mapped. Properties are only read for blocks with block
+     * state rules.
+     */
+    private String resolve(Map<String, RawNbt.Tag> entry) {
+        if (entry == null || entry.get("Name") == null) {
+            return null;
+        }
+
+        String name = entry.get("Name").asString();
+        if (!rules.hasStateRules(name)) {
+            return rules.resolveByName(name);
+        }
+
+        Map<String, String> values = new HashMap<>();
+        RawNbt.Tag properties = entry.get("Properties");
+        if (properties != null && properties.asCompound() != null) {
+            properties.asCompound().forEach((key, value) -> values.put(key, String.valueOf(value.getValue())));
+        }
+
+        return rules.resolveState(name, values);
+    }
+
+    /**
+     * Writes the replacement's explicit property values over the kept
+     * ones.
+     */
+    private static void setProperties(Map<String, RawNbt.Tag> entry, Map<String, String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+
+        RawNbt.Tag properties = entry.get("Properties");
+        Map<String, RawNbt.Tag> updated = properties == null || properties.asCompound() == null
+                ? new LinkedHashMap<>()
+                : properties.asCompound();
+
+        values.forEach((key, value) -> updated.put(key, RawNbt.Tag.ofString(value)));
+        entry.put("Properties", RawNbt.Tag.ofCompound(updated));
+    }
+
+    /**
+     * Merges palette entries that now describe the same state and repacks
+     * the index array if the palette shrank.
+     */
+    private static void deduplicate(Map<String, RawNbt.Tag> container, List<RawNbt.Tag> palette) {
+
+        int oldSize = palette.size();
+        int[] remap = new int[oldSize];
+        Map<String, Integer> seen = new HashMap<>();
+        List<RawNbt.Tag> unique = new ArrayList<>(oldSize);
+
+        for (int i = 0; i < oldSize; i++) {
+            String key = stateKey(palette.get(i).asCompound());
+            Integer existing = seen.get(key);
+
+            if (existing == null) {
+                existing = unique.size();
+                seen.put(key, existing);
+                unique.add(palette.get(i));
+            }
+            remap[i] = existing;
+        }
+
+        if (unique.size() == oldSize) {
+            return;
+        }
+
+        RawNbt.Tag dataTag = container.get("data");
+        long[] data = dataTag == null ? null : dataTag.asLongArray();
+        int oldBits = data == null ? -1 : storedBits(oldSize, data);
+        if (oldBits <= 0) {
+            return;
+        }
+
+        int newBits = bitsFor(unique.size());
+
+        if (newBits == 0) {
+            container.remove("data");
+        } else {
+            int[] indices = unpack(data, oldBits);
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = remap[Math.min(indices[i], oldSize - 1)];
+            }
+            container.put("data", RawNbt.Tag.ofLongArray(pack(indices, newBits)));
+        }
+
+        palette.clear();
+        palette.addAll(unique);
+    }
+
+    private static String stateKey(Map<String, RawNbt.Tag> entry) {
+        StringBuilder key = new StringBuilder(entry.get("Name").asString());
+
+        RawNbt.Tag properties = entry.get("Properties");
+        if (properties != null && properties.asCompound() != null) {
+            Map<String, RawNbt.Tag> sorted = new TreeMap<>(properties.asCompound());
+            sorted.forEach((name, value) -> key.append('|').append(name).append('=').append(value.getValue()));
+        }
+
+        return key.toString();
+    }
+
+    // ---------------------------------------------------------
+    // Index Packing
+    // ---------------------------------------------------------
+
+    /**
+     * Bits per index the game serializes a block state palette of this
+     * size with (PalettedContainer.PaletteProvider.getBits): none for a
+     * single entry, at least 4 up to MAX_LOCAL_PALETTE_SIZE entries, and
+     * ceil(log2(size)) above that.
+     */
+    public static int bitsFor(int paletteSize) {
+        if (paletteSize <= 1) {
+            return 0;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+        return paletteSize > MAX_LOCAL_PALETTE_SIZE ? bits : Math.max(4, bits);
+    }
+
+    /**
+     * Bits per index of a stored index array: bitsFor() if the array has
+     * the length the game expects for it, else -1.
+     */
+    static int storedBits(int paletteSize, long[] data) {
+        int bits = bitsFor(paletteSize);
+        return bits == 0 || data.length == lengthFor(bits) ? bits : -1;
+    }
+
+    /** Longs needed to store a section at this width. */
+    public static int lengthFor(int bits) {
+        int perLong = 64 / bits;
+        return (SECTION_VOLUME + perLong - 1) / perLong;
+    }
+
+    /**
+     * Unpacks indices stored without spanning long boundaries (1.16+ layout).
+     */
+    static int[] unpack(long[] data, int bits) {
+        int[] values = new int[SECTION_VOLUME];
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            int longIndex = i / perLong;
+            if (longIndex >= data.length) {
+                break;
+            }
+            int shift = (i % perLong) * bits;
+            values[i] = (int) (data[longIndex] >>> shift & mask);
+        }
+
+        return values;
+    }
+
+    static long[] pack(int[] values, int bits) {
+        int perLong = 64 / bits;
+        long[] data = new long[(SECTION_VOLUME + perLong - 1) / perLong];
+
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            int shift = (i % perLong) * bits;
+            data[i / perLong] |= ((long) values[i]) << shift;
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,290 @@
+package com.zxese.blocksubstitutor.offline;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RawNbt
+ *
+ * Minimal, dependency-free NBT reader and writer used by the offline tools.
+ * It does not touch any Minecraft class, so region files can be processed
+ * without a running game or remapped game jar.
+ *
+ * Compounds are LinkedHashMaps (tag order is preserved on write), lists are
+ * ListValue instances, and every other payload is stored as its natural
+ * Java type (Byte, Short, Integer, Long, Float, Double, byte[], String,
+ * int[], long[]).
+ */
+public final class RawNbt {
+
+    public static final byte TAG_END = 0;
+    public static final byte TAG_BYTE = 1;
+    public static final byte TAG_SHORT = 2;
+    public static final byte TAG_INT = 3;
+    public static final byte TAG_LONG = 4;
+    public static final byte TAG_FLOAT = 5;
+    public static final byte TAG_DOUBLE = 6;
+    public static final byte TAG_BYTE_ARRAY = 7;
+    public static final byte TAG_STRING = 8;
+    public static final byte TAG_LIST = 9;
+    public static final byte TAG_COMPOUND = 10;
+    public static final byte TAG_INT_ARRAY = 11;
+    public static final byte TAG_LONG_ARRAY = 12;
+
+    private RawNbt() {
+        // Utility class; no instantiation.
+    }
+
+    // ---------------------------------------------------------
+    // Tag Model
+    // ---------------------------------------------------------
+
+    /**
+     * A typed NBT value.
+     */
+    public static final class Tag {
+
+        private final byte type;
+        private final Object value;
+
+        public Tag(byte type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map<String, Tag> asCompound() {
+            return type == TAG_COMPOUND ? (Map<String, Tag>) value : null;
+        }
+
+        public ListValue asList() {
+            return type == TAG_LIST ? (ListValue) value : null;
+        }
+
+        public String asString() {
+            return type == TAG_STRING ? (String) value : null;
+        }
+
+        public long[] asLongArray() {
+            return type == TAG_LONG_ARRAY ? (long[]) value : null;
+        }
+
+        public static Tag ofString(String value) {
+            return new Tag(TAG_STRING, value);
+        }
+
+        public static Tag ofByte(byte value) {
+            return new Tag(TAG_BYTE, value);
+        }
+
+        public static Tag ofLongArray(long[] value) {
+            return new Tag(TAG_LONG_ARRAY, value);
+        }
+
+        public static Tag ofCompound(Map<String, Tag> value) {
+            return new Tag(TAG_COMPOUND, value);
+        }
+    }
+
+    /**
+     * An NBT list: element type plus items.
+     */
+    public static final class ListValue {
+
+        private final byte elementType;
+        private final List<Tag> items;
+
+        public ListValue(byte elementType, List<Tag> items) {
+            this.elementType = elementType;
+            this.items = items;
+        }
+
+        public byte getElementType() {
+            return elementType;
+        }
+
+        public List<Tag> getItems() {
+            return items;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Reading
+    // ---------------------------------------------------------
+
+    /**
+     * Reads a named root compound. The root name is discarded.
+     */
+    public static Map<String, Tag> readRoot(DataInput in) throws IOException {
+        byte type = in.readByte();
+        if (type != TAG_COMPOUND) {
+            throw new IOException("Root tag is not a compound (type " + type + ")");
+        }
+        in.readUTF();
+        return readCompound(in);
+    }
+
+    private static Map<String, Tag> readCompound(DataInput in) throws IOException {
+        Map<String, Tag> map = new LinkedHashMap<>();
+
+        while (true) {
+            byte type = in.readByte();
+            if (type == TAG_END) {
+                return map;
+            }
+            String name = in.readUTF();
+            map.put(name, new Tag(type, readPayload(in, type)));
+        }
+    }
+
+    private static Object readPayload(DataInput in, byte type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_BYTE_ARRAY: {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            }
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_LIST: {
+                byte elementType = in.readByte();
+                int length = in.readInt();
+                List<Tag> items = new ArrayList<>(Math.max(length, 0));
+                for (int i = 0; i < length; i++) {
+                    items.add(new Tag(elementType, readPayload(in, elementType)));
+                }
+                return new ListValue(elementType, items);
+            }
+            case TAG_COMPOUND:
+                return readCompound(in);
+            case TAG_INT_ARRAY: {
+                int[] ints = new int[in.readInt()];
+                for (int i = 0; i < ints.length; i++) {
+                    ints[i] = in.readInt();
+                }
+                return ints;
+            }
+            case TAG_LONG_ARRAY: {
+                long[] longs = new long[in.readInt()];
+                for (int i = 0; i < longs.length; i++) {
+                    longs[i] = in.readLong();
+                }
+                return longs;
+            }
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Writing
+    // ---------------------------------------------------------
+
+    /**
+     * Writes a root compound with an empty name.
+     */
+    public static void writeRoot(DataOutput out, Map<String, Tag> root) throws IOException {
+        out.writeByte(TAG_COMPOUND);
+        out.writeUTF("");
+        writeCompound(out, root);
+    }
+
+    private static void writeCompound(DataOutput out, Map<String, Tag> map) throws IOException {
+        for (Map.Entry<String, Tag> entry : map.entrySet()) {
+            Tag tag = entry.getValue();
+            out.writeByte(tag.type);
+            out.writeUTF(entry.getKey());
+            writePayload(out, tag.type, tag.value);
+        }
+        out.writeByte(TAG_END);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writePayload(DataOutput out, byte type, Object value) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case TAG_SHORT:
+                out.writeShort((Short) value);
+                break;
+            case TAG_INT:
+                out.writeInt((Integer) value);
+                break;
+            case TAG_LONG:
+                out.writeLong((Long) value);
+                break;
+            case TAG_FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case TAG_DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case TAG_BYTE_ARRAY: {
+                byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+            }
+            case TAG_STRING:
+                out.writeUTF((String) value);
+                break;
+            case TAG_LIST: {
+                ListValue list = (ListValue) value;
+                out.writeByte(list.elementType);
+                out.writeInt(list.items.size());
+                for (Tag item : list.items) {
+                    writePayload(out, list.elementType, item.value);
+                }
+                break;
+            }
+            case TAG_COMPOUND:
+                writeCompound(out, (Map<String, Tag>) value);
+                break;
+            case TAG_INT_ARRAY: {
+                int[] ints = (int[]) value;
+                out.writeInt(ints.length);
+                for (int i : ints) {
+                    out.writeInt(i);
+                }
+                break;
+            }
+            case TAG_LONG_ARRAY: {
+                long[] longs = (long[]) value;
+                out.writeInt(longs.length);
+                for (long l : longs) {
+                    out.writeLong(l);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+}
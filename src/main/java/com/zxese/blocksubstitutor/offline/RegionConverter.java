@@ -0,0 +1,378 @@
+package com.zxese.blocksubstitutor.offline;
+
+import com.zxese.blocksubstitutor.config.BlockSubConfig;
+import com.zxese.blocksubstitutor.config.ConfigManager;
+import com.zxese.blocksubstitutor.config.DimensionProfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * RegionConverter
+ *
+ * Standalone entry point that converts a world's region files before the
+ * world is ever loaded, without starting a server.
+ *
+ * Usage:
+ *   RegionConverter <worldDir> [--config <configDir>] [--threads <n>]
+ *                   [--dry-run] [--report <file>]
+ *
+ * Every "region" folder under the world is processed: the overworld,
+ * DIM-1, DIM1 and any custom dimension under dimensions/. Mappings are
+ * taken from blocksubstitutor.json (BlockSubConfig.getBlockMappings());
+ * exact, glob and regex keys are supported, tag keys are skipped since
+ * tags need the game's data packs. Dimension profiles apply as in game:
+ * each dimension is converted with its own mappings, and disabled
+ * dimensions are left alone. Regions are processed in parallel on a fork-join
+ * pool sized to the available cores.
+ *
+ * The config is only read: a missing or outdated file is not created or
+ * repaired on disk (ConfigManager.read()). Progress and errors go to the
+ * "BlockSubstitutor" logger, like the rest of the mod.
+ *
+ * Make a backup first; region files are rewritten in place.
+ *
+ * With --dry-run (or dryRun in the config) nothing is written: every
+ * chunk is only audited and an AuditReport of what would change is
+ * written to the report file (default: blocksubstitutor-audit.json in the
+ * world directory).
+ */
+public final class RegionConverter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("BlockSubstitutor");
+
+    private static final String USAGE =
+            "Usage: RegionConverter <worldDir> [--config <configDir>] [--threads <n>] [--dry-run] [--report <file>]";
+
+    private final PaletteRewriter rewriter;
+
+    /** Global mappings and the profiles resolved against them, by dimension ID. */
+    private final Map<String, String> mappings;
+    private final Map<String, DimensionProfile> profiles;
+    private final Map<String, PaletteRewriter> profileRewriters = new ConcurrentHashMap<>();
+
+    /** Set for a dry run: chunks are audited into this report instead of rewritten. */
+    private final AuditReport audit;
+    private final Path worldDir;
+
+    private final AtomicLong regionsDone = new AtomicLong();
+    private final AtomicLong chunksRead = new AtomicLong();
+    private final AtomicLong chunksChanged = new AtomicLong();
+    private final AtomicLong entriesRenamed = new AtomicLong();
+
+    public RegionConverter(Map<String, String> mappings) {
+        this(mappings, null, null);
+    }
+
+    /**
+     * Creates a converter that, when audit is not null, only records
+     * what would change. worldDir is used to name dimensions and regions
+     * in the report.
+     */
+    public RegionConverter(Map<String, String> mappings, AuditReport audit, Path worldDir) {
+        this(mappings, Map.of(), audit, worldDir);
+    }
+
+    /**
+     * Creates a converter for a config's global mappings and dimension
+     * profiles. Profiles need worldDir to tell dimensions apart.
+     */
+    public RegionConverter(BlockSubConfig config, AuditReport audit, Path worldDir) {
+        this(config.getBlockMappings(), config.getDimensionProfiles(), audit, worldDir);
+    }
+
+    private RegionConverter(
+            Map<String, String> mappings,
+            Map<String, DimensionProfile> profiles,
+            AuditReport audit,
+            Path worldDir
+    ) {
+        this.rewriter = new PaletteRewriter(mappings);
+        this.mappings = mappings;
+        this.profiles = profiles;
+        this.audit = audit;
+        this.worldDir = worldDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length == 0) {
+            LOGGER.error(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        Path worldDir = Paths.get(args[0]);
+        Path configDir = Paths.get("config");
+        Path reportFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean dryRun = false;
+
+        for (int i = 1; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length;
+            switch (args[i]) {
+                case "--config" -> configDir = hasValue ? Paths.get(args[++i]) : configDir;
+                case "--threads" -> threads = hasValue ? Math.max(1, Integer.parseInt(args[++i])) : threads;
+                case "--report" -> reportFile = hasValue ? Paths.get(args[++i]) : reportFile;
+                case "--dry-run" -> dryRun = true;
+                default -> {
+                }
+            }
+        }
+
+        BlockSubConfig config = ConfigManager.read(configDir);
+        Map<String, String> mappings = config.getBlockMappings();
+        dryRun |= config.isDryRun();
+
+        if (mappings.keySet().stream().anyMatch(key -> key.trim().startsWith("#"))) {
+            LOGGER.warn("Tag mappings (#...) are not supported offline and are skipped");
+        }
+
+        List<Path> regionFiles = findRegionFiles(worldDir);
+        LOGGER.info(
+                "{} {} region files with {} mappings on {} threads",
+                dryRun ? "Auditing" : "Converting", regionFiles.size(), mappings.size(), threads
+        );
+
+        long start = System.nanoTime();
+        AuditReport audit = dryRun ? new AuditReport() : null;
+        RegionConverter converter = new RegionConverter(config, audit, worldDir);
+        converter.convertAll(regionFiles, threads);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        if (audit != null) {
+            Path file = reportFile != null ? reportFile : worldDir.resolve("blocksubstitutor-audit.json");
+            audit.write(file);
+
+            LOGGER.info(
+                    "Dry run done in {} ms: {} regions, {} chunks read, {} chunks would change, "
+                            + "{} blocks would be replaced. Report: {}",
+                    elapsedMs, converter.regionsDone.get(), converter.chunksRead.get(),
+                    converter.chunksChanged.get(), audit.getBlocks(), file
+            );
+            return;
+        }
+
+        LOGGER.info(
+                "Done in {} ms: {} regions, {} chunks read, {} chunks changed, {} palette entries renamed",
+                elapsedMs, converter.regionsDone.get(), converter.chunksRead.get(),
+                converter.chunksChanged.get(), converter.entriesRenamed.get()
+        );
+    }
+
+    // ---------------------------------------------------------
+    // Discovery
+    // ---------------------------------------------------------
+
+    /**
+     * Finds every .mca file in every "region" folder under the world
+     * directory (all dimensions).
+     */
+    public static List<Path> findRegionFiles(Path worldDir) throws IOException {
+        List<Path> regionDirs;
+
+        try (Stream<Path> paths = Files.walk(worldDir)) {
+            regionDirs = paths
+                    .filter(Files::isDirectory)
+                    .filter(path -> path.getFileName() != null && path.getFileName().toString().equals("region"))
+                    .collect(Collectors.toList());
+        }
+
+        List<Path> files = new ArrayList<>();
+
+        for (Path regionDir : regionDirs) {
+            try (Stream<Path> entries = Files.list(regionDir)) {
+                entries.filter(path -> path.getFileName().toString().endsWith(".mca"))
+                        .forEach(files::add);
+            }
+        }
+
+        return files;
+    }
+
+    // ---------------------------------------------------------
+    // Conversion
+    // ---------------------------------------------------------
+
+    /**
+     * Converts all region files on a fork-join pool with the given parallelism.
+     */
+    public void convertAll(List<Path> regionFiles, int threads) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(regionFiles.size());
+            for (Path file : regionFiles) {
+                tasks.add(() -> {
+                    convertRegion(file);
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    LOGGER.warn("Region task failed: {}", e.getMessage());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Converts a single region file. The file is only rewritten when at
+     * least one chunk changed.
+     */
+    public void convertRegion(Path file) {
+        PaletteRewriter rewriter = rewriterFor(file);
+        if (rewriter == null) {
+            regionsDone.incrementAndGet();
+            return;
+        }
+
+        if (audit != null) {
+            auditRegion(file, rewriter);
+            return;
+        }
+
+        try {
+            RegionFile region = RegionFile.read(file);
+            boolean changed = false;
+
+            for (int slot = 0; slot < RegionFile.CHUNKS_PER_REGION; slot++) {
+                if (!region.isReadable(slot)) {
+                    continue;
+                }
+
+                Map<String, RawNbt.Tag> chunk = region.readChunk(slot);
+                chunksRead.incrementAndGet();
+
+                int renamed = rewriter.rewriteChunk(chunk);
+                if (renamed > 0) {
+                    region.writeChunk(slot, chunk);
+                    chunksChanged.incrementAndGet();
+                    entriesRenamed.addAndGet(renamed);
+                    changed = true;
+                }
+            }
+
+            if (changed) {
+                region.write(file);
+            }
+
+            regionsDone.incrementAndGet();
+
+        } catch (IOException e) {
+            LOGGER.warn("Failed to convert {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Audits a single region file into a local report, then merges it
+     * into the shared one. The file is never written.
+     */
+    private void auditRegion(Path file, PaletteRewriter rewriter) {
+        try {
+            RegionFile region = RegionFile.read(file);
+            AuditReport local = new AuditReport();
+            String dimension = dimensionOf(file);
+            long blocks = 0;
+
+            for (int slot = 0; slot < RegionFile.CHUNKS_PER_REGION; slot++) {
+                if (!region.isReadable(slot)) {
+                    continue;
+                }
+
+                long chunkBlocks = rewriter.auditChunk(region.readChunk(slot), dimension, local);
+                chunksRead.incrementAndGet();
+
+                if (chunkBlocks > 0) {
+                    chunksChanged.incrementAndGet();
+                    blocks += chunkBlocks;
+                }
+            }
+
+            if (blocks > 0) {
+                local.addRegionBlocks(dimension + "/" + file.getFileName(), blocks);
+            }
+            audit.merge(local);
+
+            regionsDone.incrementAndGet();
+
+        } catch (IOException e) {
+            LOGGER.warn("Failed to audit {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the rewriter for the dimension a region file belongs to, or
+     * null when its profile disables substitution.
+     */
+    private PaletteRewriter rewriterFor(Path regionFile) {
+        if (profiles.isEmpty()) {
+            return rewriter;
+        }
+
+        String dimension = dimensionOf(regionFile);
+        DimensionProfile profile = profiles.get(dimension);
+
+        if (profile == null || profile.isSameAsGlobal()) {
+            return rewriter;
+        }
+        if (!profile.isEnabled()) {
+            return null;
+        }
+        return profileRewriters.computeIfAbsent(dimension, key -> new PaletteRewriter(profile.resolveMappings(mappings)));
+    }
+
+    /**
+     * Dimension ID of a region file from its folder layout: region/ is the
+     * overworld, DIM-1 and DIM1 the nether and end, and
+     * dimensions/<namespace>/<path>/region a custom dimension.
+     */
+    private String dimensionOf(Path regionFile) {
+        Path dimensionDir = regionFile.getParent() == null ? null : regionFile.getParent().getParent();
+        if (dimensionDir == null || worldDir == null) {
+            return "unknown";
+        }
+
+        Path relative = worldDir.toAbsolutePath().normalize().relativize(dimensionDir.toAbsolutePath().normalize());
+        String path = relative.toString().replace('\\', '/');
+
+        if (path.isEmpty()) {
+            return "minecraft:overworld";
+        }
+        if (path.equals("DIM-1")) {
+            return "minecraft:the_nether";
+        }
+        if (path.equals("DIM1")) {
+            return "minecraft:the_end";
+        }
+        if (path.startsWith("dimensions/")) {
+            String[] parts = path.substring("dimensions/".length()).split("/", 2);
+            if (parts.length == 2) {
+                return parts[0] + ":" + parts[1];
+            }
+        }
+        return path;
+    }
+}
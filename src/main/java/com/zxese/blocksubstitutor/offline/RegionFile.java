@@ -0,0 +1,213 @@
+package com.zxese.blocksubstitutor.offline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * RegionFile
+ *
+ * Reads and writes Anvil region files (.mca) without any game classes.
+ *
+ * A region holds up to 32x32 chunks. Chunk payloads are kept in their
+ * stored (compressed) form until decoded, so untouched chunks are written
+ * back byte-for-byte.
+ */
+public final class RegionFile {
+
+    public static final int CHUNKS_PER_REGION = 1024;
+
+    private static final int SECTOR_SIZE = 4096;
+
+    private static final byte COMPRESSION_GZIP = 1;
+    private static final byte COMPRESSION_ZLIB = 2;
+    private static final byte COMPRESSION_NONE = 3;
+
+    /** Set on the compression byte when the payload lives in an external .mcc file. */
+    private static final int EXTERNAL_FLAG = 0x80;
+
+    /** Stored payload per slot (compression byte excluded); null = chunk not generated. */
+    private final byte[][] payloads = new byte[CHUNKS_PER_REGION][];
+    private final byte[] compression = new byte[CHUNKS_PER_REGION];
+    private final int[] timestamps = new int[CHUNKS_PER_REGION];
+
+    private RegionFile() {
+    }
+
+    // ---------------------------------------------------------
+    // File IO
+    // ---------------------------------------------------------
+
+    /**
+     * Reads every chunk payload from a region file.
+     */
+    public static RegionFile read(Path path) throws IOException {
+        RegionFile region = new RegionFile();
+        byte[] bytes = Files.readAllBytes(path);
+
+        if (bytes.length < SECTOR_SIZE * 2) {
+            return region;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+
+            int location = buffer.getInt(slot * 4);
+            region.timestamps[slot] = buffer.getInt(SECTOR_SIZE + slot * 4);
+
+            int sectorOffset = location >>> 8;
+            int sectorCount = location & 0xFF;
+            if (sectorOffset < 2 || sectorCount == 0) {
+                continue;
+            }
+
+            int start = sectorOffset * SECTOR_SIZE;
+            if (start + 5 > bytes.length) {
+                continue;
+            }
+
+            int length = buffer.getInt(start);
+            if (length <= 0 || start + 4 + length > bytes.length) {
+                continue;
+            }
+
+            region.compression[slot] = bytes[start + 4];
+            byte[] payload = new byte[length - 1];
+            System.arraycopy(bytes, start + 5, payload, 0, payload.length);
+            region.payloads[slot] = payload;
+        }
+
+        return region;
+    }
+
+    /**
+     * Writes all chunks back, packing them into consecutive sectors.
+     * The file is written to a temporary sibling first and then moved
+     * over the original.
+     */
+    public void write(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+
+            int[] locations = new int[CHUNKS_PER_REGION];
+            int nextSector = 2;
+
+            for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+                if (payloads[slot] == null) {
+                    continue;
+                }
+                int sectors = sectorsFor(payloads[slot].length);
+                if (sectors > 0xFF) {
+                    throw new IOException("Chunk slot " + slot + " is too large for an inline region entry");
+                }
+                locations[slot] = nextSector << 8 | sectors;
+                nextSector += sectors;
+            }
+
+            for (int location : locations) {
+                out.writeInt(location);
+            }
+            for (int timestamp : timestamps) {
+                out.writeInt(timestamp);
+            }
+
+            for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+                byte[] payload = payloads[slot];
+                if (payload == null) {
+                    continue;
+                }
+
+                out.writeInt(payload.length + 1);
+                out.writeByte(compression[slot]);
+                out.write(payload);
+
+                int padding = sectorsFor(payload.length) * SECTOR_SIZE - (payload.length + 5);
+                out.write(new byte[padding]);
+            }
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int sectorsFor(int payloadLength) {
+        return (payloadLength + 5 + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    }
+
+    // ---------------------------------------------------------
+    // Chunk Access
+    // ---------------------------------------------------------
+
+    public boolean hasChunk(int slot) {
+        return payloads[slot] != null;
+    }
+
+    /**
+     * Returns true if the chunk payload can be decoded by this class.
+     * External (.mcc) and unknown compression formats are left untouched.
+     */
+    public boolean isReadable(int slot) {
+        int type = compression[slot];
+        return payloads[slot] != null
+                && (type & EXTERNAL_FLAG) == 0
+                && (type == COMPRESSION_GZIP || type == COMPRESSION_ZLIB || type == COMPRESSION_NONE);
+    }
+
+    /**
+     * Decodes the chunk NBT in a slot.
+     */
+    public Map<String, RawNbt.Tag> readChunk(int slot) throws IOException {
+        InputStream in = new ByteArrayInputStream(payloads[slot]);
+
+        switch (compression[slot]) {
+            case COMPRESSION_GZIP -> in = new GZIPInputStream(in);
+            case COMPRESSION_ZLIB -> in = new InflaterInputStream(in);
+            default -> {
+            }
+        }
+
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            return RawNbt.readRoot(data);
+        }
+    }
+
+    /**
+     * Encodes chunk NBT into a slot, keeping the slot's compression format.
+     */
+    public void writeChunk(int slot, Map<String, RawNbt.Tag> root) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payloads[slot].length * 2);
+        OutputStream out = bytes;
+
+        switch (compression[slot]) {
+            case COMPRESSION_GZIP -> out = new GZIPOutputStream(out);
+            case COMPRESSION_ZLIB -> out = new DeflaterOutputStream(out);
+            default -> {
+            }
+        }
+
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+            RawNbt.writeRoot(data, root);
+        }
+
+        payloads[slot] = bytes.toByteArray();
+    }
+}
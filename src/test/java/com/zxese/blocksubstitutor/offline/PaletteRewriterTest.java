@@ -0,0 +1,171 @@
+package com.zxese.blocksubstitutor.offline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Index width selection and packing of section palettes.
+ */
+class PaletteRewriterTest {
+
+    private static final int SECTION_VOLUME = 4096;
+
+    private static final int[] SIZES = { 16, 17, 256, 257, 300, 600, 4096 };
+
+    @Test
+    void widthForPaletteSize() {
+        assertEquals(0, PaletteRewriter.bitsFor(1));
+        assertEquals(4, PaletteRewriter.bitsFor(2));
+        assertEquals(4, PaletteRewriter.bitsFor(16));
+        assertEquals(5, PaletteRewriter.bitsFor(17));
+        assertEquals(8, PaletteRewriter.bitsFor(256));
+        assertEquals(9, PaletteRewriter.bitsFor(257));
+        assertEquals(9, PaletteRewriter.bitsFor(300));
+        assertEquals(10, PaletteRewriter.bitsFor(600));
+        assertEquals(12, PaletteRewriter.bitsFor(4096));
+    }
+
+    @Test
+    void largePaletteLength() {
+        assertEquals(586, PaletteRewriter.lengthFor(PaletteRewriter.bitsFor(300)));
+        assertEquals(683, PaletteRewriter.lengthFor(PaletteRewriter.bitsFor(600)));
+    }
+
+    @Test
+    void packRoundTrip() {
+        for (int size : SIZES) {
+            int bits = PaletteRewriter.bitsFor(size);
+            int[] indices = indices(size);
+
+            long[] data = PaletteRewriter.pack(indices, bits);
+
+            assertEquals(PaletteRewriter.lengthFor(bits), data.length, "length for " + size);
+            assertArrayEquals(indices, PaletteRewriter.unpack(data, bits), "indices for " + size);
+        }
+    }
+
+    @Test
+    void storedWidthIsRecovered() {
+        for (int size : SIZES) {
+            int bits = PaletteRewriter.bitsFor(size);
+            long[] data = PaletteRewriter.pack(indices(size), bits);
+
+            assertEquals(bits, PaletteRewriter.storedBits(size, data), "width for " + size);
+        }
+    }
+
+    @Test
+    void storedWidthRejectsMismatchedArray() {
+        assertEquals(-1, PaletteRewriter.storedBits(16, PaletteRewriter.pack(indices(17), 5)));
+
+        // Registry width is never what the game writes for a section palette
+        assertEquals(-1, PaletteRewriter.storedBits(300, PaletteRewriter.pack(indices(300), 15)));
+    }
+
+    @Test
+    void largePaletteIsRepackedAtNewWidth() {
+        int size = 600;
+        int uniqueSize = 451;
+        int[] indices = indices(size);
+
+        // Entries from 451 on become copies of earlier ones: 600 -> 451 entries, 10 -> 9 bits
+        List<RawNbt.Tag> palette = new ArrayList<>();
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (i < uniqueSize) {
+                palette.add(entry("test:block_" + i));
+            } else {
+                palette.add(entry("test:old_" + i));
+                mappings.put("test:old_" + i, "test:block_" + (i - uniqueSize));
+            }
+        }
+
+        Map<String, RawNbt.Tag> container = container(palette, PaletteRewriter.pack(indices, 10));
+        Map<String, RawNbt.Tag> chunk = chunk(container);
+
+        assertEquals(size - uniqueSize, new PaletteRewriter(mappings).rewriteChunk(chunk));
+        assertEquals(uniqueSize, palette.size());
+
+        long[] data = container.get("data").asLongArray();
+        assertEquals(586, data.length);
+
+        int[] rewritten = PaletteRewriter.unpack(data, 9);
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            int expected = indices[i] < uniqueSize ? indices[i] : indices[i] - uniqueSize;
+            assertEquals("test:block_" + expected, palette.get(rewritten[i]).asCompound().get("Name").asString());
+        }
+    }
+
+    @Test
+    void largePaletteKeepsWidthWithinBoundary() {
+        int size = 300;
+        int[] indices = indices(size);
+
+        // Entries 0 and 1 both become stone, so the palette shrinks to 299 entries at 9 bits
+        List<RawNbt.Tag> palette = new ArrayList<>();
+        palette.add(entry("minecraft:crafter"));
+        palette.add(entry("minecraft:stone"));
+        for (int i = 2; i < size; i++) {
+            palette.add(entry("test:block_" + i));
+        }
+
+        Map<String, RawNbt.Tag> container = container(palette, PaletteRewriter.pack(indices, 9));
+        Map<String, RawNbt.Tag> chunk = chunk(container);
+
+        Map<String, String> mappings = new LinkedHashMap<>();
+        mappings.put("minecraft:crafter", "minecraft:stone");
+
+        assertEquals(1, new PaletteRewriter(mappings).rewriteChunk(chunk));
+        assertEquals(size - 1, palette.size());
+
+        long[] data = container.get("data").asLongArray();
+        assertEquals(586, data.length);
+
+        int[] rewritten = PaletteRewriter.unpack(data, 9);
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            String expected = indices[i] <= 1 ? "minecraft:stone" : "test:block_" + indices[i];
+            assertEquals(expected, palette.get(rewritten[i]).asCompound().get("Name").asString());
+        }
+    }
+
+    private static Map<String, RawNbt.Tag> container(List<RawNbt.Tag> palette, long[] data) {
+        Map<String, RawNbt.Tag> container = new LinkedHashMap<>();
+        container.put("palette", new RawNbt.Tag(RawNbt.TAG_LIST, new RawNbt.ListValue(RawNbt.TAG_COMPOUND, palette)));
+        container.put("data", RawNbt.Tag.ofLongArray(data));
+        return container;
+    }
+
+    private static Map<String, RawNbt.Tag> chunk(Map<String, RawNbt.Tag> container) {
+        Map<String, RawNbt.Tag> section = new LinkedHashMap<>();
+        section.put("block_states", RawNbt.Tag.ofCompound(container));
+
+        List<RawNbt.Tag> sections = new ArrayList<>();
+        sections.add(RawNbt.Tag.ofCompound(section));
+
+        Map<String, RawNbt.Tag> chunk = new LinkedHashMap<>();
+        chunk.put("sections", new RawNbt.Tag(RawNbt.TAG_LIST, new RawNbt.ListValue(RawNbt.TAG_COMPOUND, sections)));
+        return chunk;
+    }
+
+    /** Every palette index in turn, so each one is used at least once when size <= 4096. */
+    private static int[] indices(int size) {
+        int[] indices = new int[SECTION_VOLUME];
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            indices[i] = i % size;
+        }
+        return indices;
+    }
+
+    private static RawNbt.Tag entry(String name) {
+        Map<String, RawNbt.Tag> entry = new LinkedHashMap<>();
+        entry.put("Name", RawNbt.Tag.ofString(name));
+        return RawNbt.Tag.ofCompound(entry);
+    }
+}